@@ -33,6 +33,7 @@ import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.content.pm.ResolveInfo;
 import android.media.session.PlaybackState;
+import android.os.Bundle;
 import android.service.media.MediaBrowserService;
 import android.test.AndroidTestCase;
 
@@ -594,6 +595,71 @@ public class ProviderMediaControllerHelperTest extends AndroidTestCase {
         }
     }
 
+    private ProviderMediaControllerHelper createHelper() {
+        ProvidersManager providersManager = new ProvidersManager(getContext(), getContext().getPackageManager());
+        List<ResolveInfo> resolveInfo = getMediaBrowserPackages();
+        ProviderViewActive providerViewActive = new ProviderViewActive(new Provider(providersManager, resolveInfo.get(0), false), null, null, null, 0, 0, null);
+        return new ProviderMediaControllerHelper(getContext(), providerViewActive);
+    }
+
+    private PlaybackState stateWithCustomAction(long position, String extrasValue) {
+        Bundle extras = new Bundle();
+        extras.putString("mode", extrasValue);
+        extras.putIntArray("levels", new int[]{1, 2, 3});
+        PlaybackState.Builder builder = new PlaybackState.Builder();
+        builder.setState(PlaybackState.STATE_PLAYING, position, 1.0f);
+        builder.setActions(PlaybackState.ACTION_SKIP_TO_NEXT);
+        builder.addCustomAction(new PlaybackState.CustomAction.Builder("action", "name", 0)
+                .setExtras(extras)
+                .build());
+        return builder.build();
+    }
+
+    public void testResolveMediaButtonsMemoizedForEqualExtras() {
+        ProviderMediaControllerHelper test = createHelper();
+        EnumSet<SlotReservation> slots = EnumSet.noneOf(SlotReservation.class);
+        // Extras are separate bundles with equal contents, position differs
+        List<MediaButtonData> first = test.resolveMediaButtons(slots, stateWithCustomAction(1000, "shuffle"));
+        List<MediaButtonData> second = test.resolveMediaButtons(slots, stateWithCustomAction(2000, "shuffle"));
+        assertSame(first, second);
+    }
+
+    public void testResolveMediaButtonsRebuiltForChangedExtras() {
+        ProviderMediaControllerHelper test = createHelper();
+        EnumSet<SlotReservation> slots = EnumSet.noneOf(SlotReservation.class);
+        List<MediaButtonData> first = test.resolveMediaButtons(slots, stateWithCustomAction(1000, "shuffle"));
+        List<MediaButtonData> second = test.resolveMediaButtons(slots, stateWithCustomAction(1000, "repeat"));
+        assertNotSame(first, second);
+        assertEquals(Type.CUSTOM, second.get(0).type);
+        assertEquals("repeat", second.get(0).extras.getString("mode"));
+    }
+
+    public void testResolveMediaButtonsEvictsLeastRecentlyUsed() {
+        ProviderMediaControllerHelper test = createHelper();
+        EnumSet<SlotReservation> slots = EnumSet.noneOf(SlotReservation.class);
+        // 9 different layouts, one more than the helper keeps
+        PlaybackState[] states = new PlaybackState[9];
+        for (int count = 0; count < states.length; count++) {
+            PlaybackState.Builder builder = new PlaybackState.Builder();
+            for (int i = 0; i < count; i++) {
+                builder.addCustomAction("action" + i, "name" + i, 0);
+            }
+            states[count] = builder.build();
+        }
+
+        List<MediaButtonData> eldest = test.resolveMediaButtons(slots, states[0]);
+        List<MediaButtonData> recent = test.resolveMediaButtons(slots, states[1]);
+        for (int i = 2; i < 8; i++) {
+            test.resolveMediaButtons(slots, states[i]);
+        }
+        // 8 layouts are kept
+        assertSame(eldest, test.resolveMediaButtons(slots, states[0]));
+        // 9th evicts the least recently used one, which is now states[1]
+        test.resolveMediaButtons(slots, states[8]);
+        assertNotSame(recent, test.resolveMediaButtons(slots, states[1]));
+        assertSame(eldest, test.resolveMediaButtons(slots, states[0]));
+    }
+
     private class TestSubCase {
         public String name;
         public EnumSet<SlotReservation> slotReservations;
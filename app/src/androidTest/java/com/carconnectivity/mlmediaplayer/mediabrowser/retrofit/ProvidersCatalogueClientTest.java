@@ -0,0 +1,120 @@
+/*
+ * Copyright Car Connectivity Consortium
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * You may decide to give the Car Connectivity Consortium input, suggestions
+ * or feedback of a technical nature which may be implemented on the
+ * Car Connectivity Consortium products (“Feedback”).
+ *
+ * You agrees that any such Feedback is given on non-confidential
+ * basis and Licensee hereby waives any confidentiality restrictions
+ * for such Feedback. In addition, Licensee grants to the Car Connectivity Consortium
+ * and its affiliates a worldwide, non-exclusive, perpetual, irrevocable,
+ * sub-licensable, royalty-free right and license under Licensee’s copyrights to copy,
+ * reproduce, modify, create derivative works and directly or indirectly
+ * distribute, make available and communicate to public the Feedback
+ * in or in connection to any CCC products, software and/or services.
+ */
+
+package com.carconnectivity.mlmediaplayer.mediabrowser.retrofit;
+
+import android.test.AndroidTestCase;
+
+import com.carconnectivity.mlmediaplayer.mediabrowser.retrofit.model.ProvidersToDownloadModel;
+
+import java.io.File;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import retrofit2.Response;
+
+public class ProvidersCatalogueClientTest extends AndroidTestCase {
+    private static final String ETAG = "\"catalogue-1\"";
+    private static final String CATALOGUE = "<apps>"
+            + "<app><label>First</label><iconUrl>http://localhost/first.png</iconUrl><id>com.example.first</id></app>"
+            + "<app><label>Second</label><iconUrl>http://localhost/second.png</iconUrl><id>com.example.second</id></app>"
+            + "</apps>";
+
+    private MockWebServer mServer;
+    private File mCacheDirectory;
+    private ProvidersCatalogueClient mClient;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mServer = new MockWebServer();
+        mServer.start();
+        mCacheDirectory = new File(getContext().getCacheDir(), "catalogue-test-" + System.nanoTime());
+        mClient = new ProvidersCatalogueClient(mCacheDirectory, mServer.url("/").toString());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mClient.getHttpClient().cache().delete();
+        mServer.shutdown();
+        super.tearDown();
+    }
+
+    private static MockResponse catalogueResponse() {
+        return new MockResponse()
+                .setHeader("ETag", ETAG)
+                .setHeader("Content-Type", "application/xml")
+                .setBody(CATALOGUE);
+    }
+
+    public void testFirstDownloadIsUnconditional() throws Exception {
+        mServer.enqueue(catalogueResponse());
+
+        final Response<ProvidersToDownloadModel> response = mClient.newCall().execute();
+
+        assertTrue(response.isSuccessful());
+        assertFalse(ProvidersCatalogueClient.isNotModified(response));
+        assertEquals(2, response.body().getProviderToDownloadModelList().size());
+        final RecordedRequest request = mServer.takeRequest();
+        assertNull(request.getHeader("If-None-Match"));
+    }
+
+    public void testUnchangedCatalogueIsRevalidated() throws Exception {
+        mServer.enqueue(catalogueResponse());
+        mServer.enqueue(new MockResponse().setResponseCode(304).setHeader("ETag", ETAG));
+
+        mClient.newCall().execute().body();
+        final Response<ProvidersToDownloadModel> response = mClient.newCall().execute();
+
+        assertTrue(ProvidersCatalogueClient.isNotModified(response));
+        /* body of the 304 response comes from the cache */
+        assertEquals(2, response.body().getProviderToDownloadModelList().size());
+        mServer.takeRequest();
+        final RecordedRequest revalidation = mServer.takeRequest();
+        assertEquals(ETAG, revalidation.getHeader("If-None-Match"));
+        assertEquals(2, mServer.getRequestCount());
+    }
+
+    public void testChangedCatalogueIsDownloaded() throws Exception {
+        mServer.enqueue(catalogueResponse());
+        mServer.enqueue(new MockResponse()
+                .setHeader("ETag", "\"catalogue-2\"")
+                .setHeader("Content-Type", "application/xml")
+                .setBody("<apps><app><label>Third</label><iconUrl>http://localhost/third.png</iconUrl>"
+                        + "<id>com.example.third</id></app></apps>"));
+
+        mClient.newCall().execute().body();
+        final Response<ProvidersToDownloadModel> response = mClient.newCall().execute();
+
+        assertFalse(ProvidersCatalogueClient.isNotModified(response));
+        assertEquals(1, response.body().getProviderToDownloadModelList().size());
+        assertEquals("com.example.third", response.body().getProviderToDownloadModelList().get(0).getId());
+    }
+}
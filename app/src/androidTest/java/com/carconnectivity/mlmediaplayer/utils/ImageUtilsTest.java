@@ -0,0 +1,233 @@
+/*
+ * Copyright Car Connectivity Consortium
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * You may decide to give the Car Connectivity Consortium input, suggestions
+ * or feedback of a technical nature which may be implemented on the
+ * Car Connectivity Consortium products (“Feedback”).
+ *
+ * You agrees that any such Feedback is given on non-confidential
+ * basis and Licensee hereby waives any confidentiality restrictions
+ * for such Feedback. In addition, Licensee grants to the Car Connectivity Consortium
+ * and its affiliates a worldwide, non-exclusive, perpetual, irrevocable,
+ * sub-licensable, royalty-free right and license under Licensee’s copyrights to copy,
+ * reproduce, modify, create derivative works and directly or indirectly
+ * distribute, make available and communicate to public the Feedback
+ * in or in connection to any CCC products, software and/or services.
+ */
+
+package com.carconnectivity.mlmediaplayer.utils;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.graphics.Rect;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.graphics.drawable.InsetDrawable;
+import android.graphics.drawable.ShapeDrawable;
+import android.graphics.drawable.shapes.RectShape;
+import android.os.SystemClock;
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+/**
+ * Checks trimming of transparent icon borders against a full pixel scan. The implementation
+ * replaced by the row scan is kept as the baseline of the timing comparison only, it dropped
+ * the last visible column and sometimes the last visible row, so its results are not compared.
+ */
+public class ImageUtilsTest extends AndroidTestCase {
+    private static final String TAG = ImageUtilsTest.class.getSimpleName();
+    private static final int[] SIZES = {24, 48, 96, 192, 512};
+    private static final int TIMING_ITERATIONS = 50;
+
+    private static Bitmap createBitmap(int size, int color) {
+        final Bitmap bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+        bitmap.eraseColor(color);
+        return bitmap;
+    }
+
+    private static Bitmap createIcon(int size) {
+        /* visible square in the middle, a quarter of the size from every edge */
+        final Bitmap bitmap = createBitmap(size, Color.TRANSPARENT);
+        for (int y = size / 4; y < size - size / 4; y++) {
+            for (int x = size / 4; x < size - size / 4; x++) {
+                bitmap.setPixel(x, y, Color.RED);
+            }
+        }
+        return bitmap;
+    }
+
+    /**
+     * Visits every pixel, whole bitmap if none is visible.
+     */
+    private static Rect scanAllPixels(Bitmap bitmap) {
+        int left = bitmap.getWidth(), top = bitmap.getHeight(), right = -1, bottom = -1;
+        for (int y = 0; y < bitmap.getHeight(); y++) {
+            for (int x = 0; x < bitmap.getWidth(); x++) {
+                if (Color.alpha(bitmap.getPixel(x, y)) == 0) continue;
+                left = Math.min(left, x);
+                top = Math.min(top, y);
+                right = Math.max(right, x);
+                bottom = Math.max(bottom, y);
+            }
+        }
+        if (right < 0) {
+            return new Rect(0, 0, bitmap.getWidth(), bitmap.getHeight());
+        }
+        return new Rect(left, top, right + 1, bottom + 1);
+    }
+
+    private static void assertTrimmed(Bitmap source) {
+        final Rect expected = scanAllPixels(source);
+        assertEquals(expected, ImageUtils.findVisibleBounds(source, 0, null));
+
+        final Bitmap trimmed = ImageUtils.trimTransparentToBitmap(new BitmapDrawable(null, source));
+        assertEquals(expected.width(), trimmed.getWidth());
+        assertEquals(expected.height(), trimmed.getHeight());
+        assertEquals(source.getPixel(expected.left, expected.top), trimmed.getPixel(0, 0));
+        if (expected.width() == source.getWidth() && expected.height() == source.getHeight()) {
+            /* nothing to trim, source is returned as is */
+            assertSame(source, trimmed);
+        }
+    }
+
+    public void testFullyTransparent() {
+        for (int size : SIZES) {
+            assertTrimmed(createBitmap(size, Color.TRANSPARENT));
+        }
+    }
+
+    public void testFullyOpaque() {
+        for (int size : SIZES) {
+            assertTrimmed(createBitmap(size, Color.BLUE));
+        }
+    }
+
+    public void testSingleVisiblePixelAtEachEdge() {
+        for (int size : SIZES) {
+            final int middle = size / 2;
+            final int[][] pixels = {{middle, 0}, {middle, size - 1}, {0, middle}, {size - 1, middle}
+                    , {0, 0}, {size - 1, size - 1}};
+            for (int[] pixel : pixels) {
+                final Bitmap bitmap = createBitmap(size, Color.TRANSPARENT);
+                bitmap.setPixel(pixel[0], pixel[1], Color.GREEN);
+                assertTrimmed(bitmap);
+            }
+        }
+    }
+
+    public void testVisibleSquare() {
+        for (int size : SIZES) {
+            assertTrimmed(createIcon(size));
+        }
+    }
+
+    public void testNonBitmapDrawable() {
+        /* largest first, so the scratch bitmap is reused for the smaller ones */
+        for (int i = SIZES.length - 1; i >= 0; i--) {
+            final int size = SIZES[i];
+            final int inset = size / 4;
+            final ShapeDrawable shape = new ShapeDrawable(new RectShape());
+            shape.getPaint().setColor(Color.RED);
+            shape.setIntrinsicWidth(size - 2 * inset);
+            shape.setIntrinsicHeight(size - 2 * inset);
+            final Drawable drawable = new InsetDrawable(shape, inset);
+
+            final Rect expected = scanAllPixels(ImageUtils.drawableToBitmap(drawable));
+            final Bitmap trimmed = ImageUtils.trimTransparentToBitmap(drawable);
+            assertEquals(expected.width(), trimmed.getWidth());
+            assertEquals(expected.height(), trimmed.getHeight());
+            assertEquals(Color.RED, trimmed.getPixel(0, 0));
+            assertEquals(Color.RED, trimmed.getPixel(trimmed.getWidth() - 1, trimmed.getHeight() - 1));
+        }
+    }
+
+    public void testTimingComparedToFullCopy() {
+        for (int size : SIZES) {
+            final Bitmap icon = createIcon(size);
+            final BitmapDrawable drawable = new BitmapDrawable(null, icon);
+
+            long start = SystemClock.elapsedRealtimeNanos();
+            for (int i = 0; i < TIMING_ITERATIONS; i++) {
+                trimTransparentRegionsBaseline(icon, 0);
+            }
+            final long baseline = SystemClock.elapsedRealtimeNanos() - start;
+
+            start = SystemClock.elapsedRealtimeNanos();
+            for (int i = 0; i < TIMING_ITERATIONS; i++) {
+                ImageUtils.trimTransparentToBitmap(drawable);
+            }
+            final long rowScan = SystemClock.elapsedRealtimeNanos() - start;
+
+            Log.i(TAG, "Trimming " + size + "x" + size + " icon, us per call: full copy "
+                    + baseline / TIMING_ITERATIONS / 1000 + ", row scan " + rowScan / TIMING_ITERATIONS / 1000);
+        }
+    }
+
+    /**
+     * Implementation replaced by ImageUtils.findVisibleBounds, copies all pixels
+     * and scans columns through the whole copy.
+     */
+    private static Bitmap trimTransparentRegionsBaseline(Bitmap input, int alphaThreshold) {
+        final int height = input.getHeight();
+        final int width = input.getWidth();
+
+        final int[] pixels = new int[height * width];
+        input.getPixels(pixels, 0, width, 0, 0, width, height);
+
+        int boundTop = 0, boundBottom = 0, boundLeft = 0, boundRight = 0;
+        int i = 0;
+
+        topScan:
+        for (i = 0; i < pixels.length; i++) {
+            if (Color.alpha(pixels[i]) > alphaThreshold) {
+                boundTop = i / width;
+                break topScan;
+            }
+        }
+
+        bottomScan:
+        for (i = pixels.length - 1; i >= 0; i--) {
+            if (Color.alpha(pixels[i]) > alphaThreshold) {
+                boundBottom = (pixels.length - i) / width;
+                break bottomScan;
+            }
+        }
+
+        leftScan:
+        for (i = 0; i < width; i++) {
+            for (int j = i; j < pixels.length; j += width) {
+                if (Color.alpha(pixels[j]) > alphaThreshold) {
+                    boundLeft = j % width;
+                    break leftScan;
+                }
+            }
+        }
+
+        rightScan:
+        for (i = pixels.length - 1; i >= 0; i--) {
+            for (int j = i; j >= 0; j -= width) {
+                if (Color.alpha(pixels[j]) > alphaThreshold) {
+                    boundRight = width - (j % width);
+                    break rightScan;
+                }
+            }
+        }
+
+        return Bitmap.createBitmap(input, boundLeft, boundTop
+                , width - boundLeft - boundRight
+                , height - boundTop - boundBottom
+        );
+    }
+}
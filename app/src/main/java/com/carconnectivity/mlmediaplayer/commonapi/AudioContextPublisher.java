@@ -0,0 +1,149 @@
+/*
+ * Copyright Car Connectivity Consortium
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * You may decide to give the Car Connectivity Consortium input, suggestions
+ * or feedback of a technical nature which may be implemented on the
+ * Car Connectivity Consortium products (“Feedback”).
+ *
+ * You agrees that any such Feedback is given on non-confidential
+ * basis and Licensee hereby waives any confidentiality restrictions
+ * for such Feedback. In addition, Licensee grants to the Car Connectivity Consortium
+ * and its affiliates a worldwide, non-exclusive, perpetual, irrevocable,
+ * sub-licensable, royalty-free right and license under Licensee’s copyrights to copy,
+ * reproduce, modify, create derivative works and directly or indirectly
+ * distribute, make available and communicate to public the Feedback
+ * in or in connection to any CCC products, software and/or services.
+ */
+
+package com.carconnectivity.mlmediaplayer.commonapi;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.RemoteException;
+import android.util.Log;
+
+import com.mirrorlink.android.commonapi.IContextManager;
+
+/**
+ * Publishes audio context information to the MirrorLink server from a dedicated thread,
+ * so slow servers never stall the caller. Requests are applied in order, the ones made
+ * while a call is in progress collapse into the latest state and a state equal to the
+ * last published one is not sent again.
+ */
+final class AudioContextPublisher {
+    private static final String TAG = AudioContextPublisher.class.getSimpleName();
+    private static final int STATE_UNKNOWN = -1;
+    private static final int STATE_NOT_PLAYING = 0;
+    private static final int STATE_PLAYING = 1;
+
+    private final MirrorLinkApplicationContext mApplicationContext;
+    private final int[] mCategories;
+    private final HandlerThread mThread;
+    private final Handler mHandler;
+
+    private final Object mLock = new Object();
+    /* guarded by mLock */
+    private int mRequestedState = STATE_UNKNOWN;
+    private boolean mForce = false;
+    private boolean mPending = false;
+    /* accessed only on the publisher thread */
+    private int mPublishedState = STATE_UNKNOWN;
+
+    private final Runnable mPublishRunnable = new Runnable() {
+        @Override
+        public void run() {
+            publishLatest();
+        }
+    };
+
+    AudioContextPublisher(MirrorLinkApplicationContext applicationContext, int category) {
+        mApplicationContext = applicationContext;
+        mCategories = new int[]{category};
+        mThread = new HandlerThread("AudioContextPublisher");
+        mThread.start();
+        mHandler = new Handler(mThread.getLooper());
+    }
+
+    /**
+     * Requests publishing of the audio context, skipped if it was already published.
+     */
+    void publish(boolean isPlaying) {
+        request(isPlaying, false);
+    }
+
+    /**
+     * Requests publishing of the audio context even if it was already published,
+     * e.g. after the MirrorLink session was established.
+     */
+    void republish(boolean isPlaying) {
+        request(isPlaying, true);
+    }
+
+    /**
+     * Forgets the last published state, to be called when the context manager is lost.
+     */
+    void invalidate() {
+        synchronized (mLock) {
+            mForce = true;
+        }
+    }
+
+    void release() {
+        mHandler.removeCallbacks(mPublishRunnable);
+        mThread.quitSafely();
+    }
+
+    private void request(boolean isPlaying, boolean force) {
+        synchronized (mLock) {
+            mRequestedState = isPlaying ? STATE_PLAYING : STATE_NOT_PLAYING;
+            mForce |= force;
+            /* pending publication will pick up the latest state */
+            if (mPending) return;
+            mPending = true;
+        }
+        mHandler.post(mPublishRunnable);
+    }
+
+    private void publishLatest() {
+        final int state;
+        final boolean force;
+        synchronized (mLock) {
+            state = mRequestedState;
+            force = mForce;
+            mForce = false;
+            mPending = false;
+        }
+        if (state == STATE_UNKNOWN) return;
+        if (force == false && state == mPublishedState) {
+            Log.v(TAG, "Audio context unchanged, not published: " + state);
+            return;
+        }
+
+        final IContextManager manager = mApplicationContext.getContextManager();
+        if (manager == null) {
+            mPublishedState = STATE_UNKNOWN;
+            return;
+        }
+        final boolean isPlaying = state == STATE_PLAYING;
+        Log.d(TAG, "setAudioContextInformation isPlaying: " + isPlaying);
+        try {
+            manager.setAudioContextInformation(isPlaying, mCategories, true);
+            mPublishedState = state;
+        } catch (RemoteException re) {
+            Log.e(TAG, "Failed to set audio context: " + re.getMessage());
+            mPublishedState = STATE_UNKNOWN;
+        }
+    }
+}
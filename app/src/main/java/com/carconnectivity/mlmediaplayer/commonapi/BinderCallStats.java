@@ -0,0 +1,192 @@
+/*
+ * Copyright Car Connectivity Consortium
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * You may decide to give the Car Connectivity Consortium input, suggestions
+ * or feedback of a technical nature which may be implemented on the
+ * Car Connectivity Consortium products (“Feedback”).
+ *
+ * You agrees that any such Feedback is given on non-confidential
+ * basis and Licensee hereby waives any confidentiality restrictions
+ * for such Feedback. In addition, Licensee grants to the Car Connectivity Consortium
+ * and its affiliates a worldwide, non-exclusive, perpetual, irrevocable,
+ * sub-licensable, royalty-free right and license under Licensee’s copyrights to copy,
+ * reproduce, modify, create derivative works and directly or indirectly
+ * distribute, make available and communicate to public the Feedback
+ * in or in connection to any CCC products, software and/or services.
+ */
+
+package com.carconnectivity.mlmediaplayer.commonapi;
+
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Latency statistics of binder calls made to the MirrorLink Common API. Interfaces are
+ * wrapped in proxies recording per method latency histogram, error count, calls made on
+ * the main thread and the last calling thread. Statistics are printed with dump().
+ */
+public final class BinderCallStats {
+    private static final String TAG = BinderCallStats.class.getSimpleName();
+    /* upper bounds of histogram buckets in milliseconds, last bucket is unbounded */
+    private static final long[] BUCKET_BOUNDS_MS = {1, 2, 5, 10, 20, 50, 100, 250, 500, 1000};
+
+    private static final ConcurrentHashMap<String, MethodStats> sStats = new ConcurrentHashMap<>();
+
+    private BinderCallStats() {
+    }
+
+    /**
+     * Wraps the interface so that every call made through it is measured.
+     *
+     * @return wrapped interface, null if the delegate is null
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T wrap(final Class<T> type, final T delegate) {
+        if (delegate == null) return null;
+        if (Proxy.isProxyClass(delegate.getClass())) return delegate;
+
+        final InvocationHandler handler = new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                /* only methods of the interface itself are remote calls */
+                if (method.getDeclaringClass() != type) {
+                    return invokeDelegate(delegate, method, args);
+                }
+
+                final boolean onMainThread = Looper.myLooper() == Looper.getMainLooper();
+                final long start = SystemClock.elapsedRealtimeNanos();
+                boolean failed = true;
+                try {
+                    final Object result = invokeDelegate(delegate, method, args);
+                    failed = false;
+                    return result;
+                } finally {
+                    final long elapsed = SystemClock.elapsedRealtimeNanos() - start;
+                    record(type.getSimpleName() + "." + method.getName(), elapsed, failed, onMainThread);
+                }
+            }
+        };
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private static Object invokeDelegate(Object delegate, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(delegate, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void record(String name, long elapsedNanos, boolean failed, boolean onMainThread) {
+        MethodStats stats = sStats.get(name);
+        if (stats == null) {
+            final MethodStats created = new MethodStats();
+            final MethodStats existing = sStats.putIfAbsent(name, created);
+            stats = existing != null ? existing : created;
+        }
+        stats.record(elapsedNanos, failed, onMainThread, Thread.currentThread().getName());
+        if (onMainThread) {
+            Log.v(TAG, "Binder call on main thread: " + name
+                    + " took " + elapsedNanos / 1000 + " us");
+        }
+    }
+
+    public static void reset() {
+        sStats.clear();
+    }
+
+    /**
+     * Prints statistics of all methods called so far, sorted by name.
+     */
+    public static void dump(PrintWriter writer) {
+        writer.println("Binder call statistics (latency buckets in ms):");
+        final Map<String, MethodStats> sorted = new TreeMap<>(sStats);
+        if (sorted.isEmpty()) {
+            writer.println("  no calls");
+            return;
+        }
+        for (Map.Entry<String, MethodStats> entry : sorted.entrySet()) {
+            writer.print("  ");
+            writer.print(entry.getKey());
+            writer.print(": ");
+            entry.getValue().dump(writer);
+            writer.println();
+        }
+    }
+
+    /**
+     * Prints statistics to the log, so they are present in field logs.
+     */
+    public static void dumpToLog() {
+        final StringWriter buffer = new StringWriter();
+        dump(new PrintWriter(buffer));
+        for (String line : buffer.toString().split("\n")) {
+            Log.i(TAG, line);
+        }
+    }
+
+    private static final class MethodStats {
+        private final long[] mBuckets = new long[BUCKET_BOUNDS_MS.length + 1];
+        private long mCount;
+        private long mErrors;
+        private long mMainThreadCalls;
+        private long mTotalNanos;
+        private long mMaxNanos;
+        private String mLastThread;
+
+        synchronized void record(long elapsedNanos, boolean failed, boolean onMainThread, String thread) {
+            final long elapsedMs = elapsedNanos / 1000000;
+            int bucket = 0;
+            while (bucket < BUCKET_BOUNDS_MS.length && elapsedMs >= BUCKET_BOUNDS_MS[bucket]) {
+                bucket++;
+            }
+            mBuckets[bucket]++;
+            mCount++;
+            if (failed) mErrors++;
+            if (onMainThread) mMainThreadCalls++;
+            mTotalNanos += elapsedNanos;
+            mMaxNanos = Math.max(mMaxNanos, elapsedNanos);
+            mLastThread = thread;
+        }
+
+        synchronized void dump(PrintWriter writer) {
+            writer.print("count=" + mCount);
+            writer.print(" errors=" + mErrors);
+            writer.print(" mainThread=" + mMainThreadCalls);
+            writer.print(" avgUs=" + (mCount > 0 ? mTotalNanos / mCount / 1000 : 0));
+            writer.print(" maxUs=" + mMaxNanos / 1000);
+            writer.print(" lastThread=" + mLastThread);
+            writer.print(" histogram=[");
+            for (int i = 0; i < mBuckets.length; i++) {
+                if (i > 0) writer.print(", ");
+                writer.print(i < BUCKET_BOUNDS_MS.length ? "<" + BUCKET_BOUNDS_MS[i] : ">=" + BUCKET_BOUNDS_MS[i - 1]);
+                writer.print(":");
+                writer.print(mBuckets[i]);
+            }
+            writer.print("]");
+        }
+    }
+}
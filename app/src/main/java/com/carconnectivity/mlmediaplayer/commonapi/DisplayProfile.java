@@ -0,0 +1,162 @@
+/*
+ * Copyright Car Connectivity Consortium
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * You may decide to give the Car Connectivity Consortium input, suggestions
+ * or feedback of a technical nature which may be implemented on the
+ * Car Connectivity Consortium products (“Feedback”).
+ *
+ * You agrees that any such Feedback is given on non-confidential
+ * basis and Licensee hereby waives any confidentiality restrictions
+ * for such Feedback. In addition, Licensee grants to the Car Connectivity Consortium
+ * and its affiliates a worldwide, non-exclusive, perpetual, irrevocable,
+ * sub-licensable, royalty-free right and license under Licensee’s copyrights to copy,
+ * reproduce, modify, create derivative works and directly or indirectly
+ * distribute, make available and communicate to public the Feedback
+ * in or in connection to any CCC products, software and/or services.
+ */
+
+package com.carconnectivity.mlmediaplayer.commonapi;
+
+import android.os.Bundle;
+
+import com.carconnectivity.mlmediaplayer.commonapi.events.DisplayProfileChangedEvent;
+import com.carconnectivity.mlmediaplayer.utils.RsEventBus;
+import com.mirrorlink.android.commonapi.Defs;
+
+/**
+ * Describes how the application framebuffer is scaled down on its way to the head unit.
+ * Created from the display configuration of the MirrorLink session, images do not need
+ * more pixels than the head unit is able to show.
+ */
+public final class DisplayProfile {
+    /* profile used without MirrorLink session, images are shown in full resolution */
+    public static final DisplayProfile UNSCALED = new DisplayProfile(0, 0, 1f);
+
+    private static final float MIN_SCALE = 0.25f;
+    /* scales are rounded up to whole steps, so cached images of similar displays are shared */
+    private static final int SCALE_STEP_PERCENT = 10;
+
+    private final int mRemoteWidth;
+    private final int mRemoteHeight;
+    private final float mScale;
+
+    private DisplayProfile(int remoteWidth, int remoteHeight, float scale) {
+        mRemoteWidth = remoteWidth;
+        mRemoteHeight = remoteHeight;
+        mScale = scale;
+    }
+
+    /**
+     * Creates profile from the bundle returned by IDisplayManager.getDisplayConfiguration.
+     *
+     * @return profile of the remote display, UNSCALED if configuration is missing or incomplete
+     */
+    public static DisplayProfile fromConfiguration(Bundle configuration) {
+        if (configuration == null) return UNSCALED;
+
+        final int appWidth = configuration.getInt(Defs.DisplayConfiguration.APP_PIXEL_WIDTH);
+        final int appHeight = configuration.getInt(Defs.DisplayConfiguration.APP_PIXEL_HEIGHT);
+        if (appWidth <= 0 || appHeight <= 0) return UNSCALED;
+
+        /* framebuffer is scaled by the server and then again by the client,
+         * the smaller of both limits what is visible on the head unit
+         */
+        final int remoteWidth = smallerPositive(
+                configuration.getInt(Defs.DisplayConfiguration.SERVER_PIXEL_WIDTH)
+                , configuration.getInt(Defs.DisplayConfiguration.CLIENT_PIXEL_WIDTH));
+        final int remoteHeight = smallerPositive(
+                configuration.getInt(Defs.DisplayConfiguration.SERVER_PIXEL_HEIGHT)
+                , configuration.getInt(Defs.DisplayConfiguration.CLIENT_PIXEL_HEIGHT));
+        if (remoteWidth <= 0 || remoteHeight <= 0) return UNSCALED;
+
+        final float scale = Math.min((float) remoteWidth / appWidth, (float) remoteHeight / appHeight);
+        return new DisplayProfile(remoteWidth, remoteHeight, roundScale(scale));
+    }
+
+    /**
+     * @return profile of the current MirrorLink session, UNSCALED if there is none
+     */
+    public static DisplayProfile getCurrent() {
+        final DisplayProfileChangedEvent event
+                = RsEventBus.getStickyEvent(DisplayProfileChangedEvent.class);
+        return event != null ? event.profile : UNSCALED;
+    }
+
+    private static int smallerPositive(int first, int second) {
+        if (first <= 0) return second;
+        if (second <= 0) return first;
+        return Math.min(first, second);
+    }
+
+    private static float roundScale(float scale) {
+        if (scale >= 1f) return 1f;
+        final int percent = (int) Math.ceil(scale * 100 / SCALE_STEP_PERCENT) * SCALE_STEP_PERCENT;
+        return Math.max(percent / 100f, MIN_SCALE);
+    }
+
+    /**
+     * @return factor from application pixels to pixels visible on the head unit, at most 1
+     */
+    public float getScale() {
+        return mScale;
+    }
+
+    /**
+     * @return scale as whole percents, suitable for cache keys
+     */
+    public int getScalePercent() {
+        return Math.round(mScale * 100);
+    }
+
+    public boolean isScaled() {
+        return mScale < 1f;
+    }
+
+    /**
+     * Converts size in application pixels to the size visible on the head unit.
+     */
+    public int scale(int size) {
+        if (size <= 0 || isScaled() == false) return size;
+        return Math.max(Math.round(size * mScale), 1);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        final DisplayProfile that = (DisplayProfile) o;
+        return mRemoteWidth == that.mRemoteWidth
+                && mRemoteHeight == that.mRemoteHeight
+                && Float.compare(mScale, that.mScale) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = mRemoteWidth;
+        result = 31 * result + mRemoteHeight;
+        result = 31 * result + Float.floatToIntBits(mScale);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "DisplayProfile{" +
+                "mRemoteWidth=" + mRemoteWidth +
+                ", mRemoteHeight=" + mRemoteHeight +
+                ", mScale=" + mScale +
+                '}';
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright Car Connectivity Consortium
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * You may decide to give the Car Connectivity Consortium input, suggestions
+ * or feedback of a technical nature which may be implemented on the
+ * Car Connectivity Consortium products (“Feedback”).
+ *
+ * You agrees that any such Feedback is given on non-confidential
+ * basis and Licensee hereby waives any confidentiality restrictions
+ * for such Feedback. In addition, Licensee grants to the Car Connectivity Consortium
+ * and its affiliates a worldwide, non-exclusive, perpetual, irrevocable,
+ * sub-licensable, royalty-free right and license under Licensee’s copyrights to copy,
+ * reproduce, modify, create derivative works and directly or indirectly
+ * distribute, make available and communicate to public the Feedback
+ * in or in connection to any CCC products, software and/or services.
+ */
+
+package com.carconnectivity.mlmediaplayer.commonapi;
+
+import android.os.RemoteException;
+import android.util.Log;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shares one Common API manager between any number of local owners. The manager is
+ * requested from the service when the first owner registers and unregistered when the last
+ * one leaves. The service gets a single dispatcher listener, which forwards every callback
+ * to all listeners registered locally.
+ * <br>
+ * Owners are reference counted without locks and listeners are kept in a copy-on-write
+ * list, so callbacks arriving on binder threads never see it modified. Only requesting and
+ * unregistering the manager itself is serialized.
+ *
+ * @param <M> manager interface
+ * @param <L> listener interface of the manager
+ */
+abstract class ManagerRegistry<M, L> {
+    private static final String TAG = ManagerRegistry.class.getSimpleName();
+    /* reference count of an owner which was already removed from the map */
+    private static final int RELEASED = -1;
+
+    private final String mName;
+    private final ConcurrentHashMap<Object, AtomicInteger> mOwners = new ConcurrentHashMap<>();
+    private final AtomicInteger mReferenceCount = new AtomicInteger();
+    private final CopyOnWriteArrayList<L> mListeners = new CopyOnWriteArrayList<>();
+    private final Object mManagerLock = new Object();
+    private volatile M mManager;
+    private L mDispatcher;
+
+    ManagerRegistry(String name) {
+        mName = name;
+    }
+
+    /**
+     * Requests the manager from the service.
+     *
+     * @param dispatcher listener forwarding callbacks to all local listeners
+     */
+    protected abstract M requestManager(L dispatcher) throws RemoteException;
+
+    /**
+     * Creates listener passed to the service, which forwards callbacks to getListeners.
+     */
+    protected abstract L createDispatcher();
+
+    protected abstract void unregisterManager(M manager) throws RemoteException;
+
+    public M getManager() {
+        return mManager;
+    }
+
+    /**
+     * @return snapshot of local listeners, safe to iterate from any thread
+     */
+    protected List<L> getListeners() {
+        return mListeners;
+    }
+
+    public void register(Object owner, L listener) {
+        Log.v(TAG, "register " + mName + " local " + owner.getClass().getName());
+        if (listener != null) {
+            mListeners.addIfAbsent(listener);
+        }
+        acquireOwner(owner);
+        if (mReferenceCount.incrementAndGet() == 1) {
+            updateManager();
+        }
+    }
+
+    public void unregister(Object owner, L listener) {
+        Log.v(TAG, "unregister " + mName + " local " + owner.getClass().getName());
+        if (listener != null) {
+            mListeners.remove(listener);
+        }
+        /* owners may unregister more times than they registered */
+        if (releaseOwner(owner) == false) return;
+        if (mReferenceCount.decrementAndGet() == 0) {
+            updateManager();
+        }
+    }
+
+    /**
+     * Forgets the manager without unregistering it, used when the service disconnects.
+     */
+    public void invalidate() {
+        synchronized (mManagerLock) {
+            mManager = null;
+        }
+    }
+
+    private void acquireOwner(Object owner) {
+        while (true) {
+            AtomicInteger count = mOwners.get(owner);
+            if (count == null) {
+                count = new AtomicInteger(1);
+                if (mOwners.putIfAbsent(owner, count) == null) return;
+                continue;
+            }
+            final int current = count.get();
+            /* released counter is being removed from the map, retry with a new one */
+            if (current != RELEASED && count.compareAndSet(current, current + 1)) return;
+        }
+    }
+
+    private boolean releaseOwner(Object owner) {
+        final AtomicInteger count = mOwners.get(owner);
+        if (count == null) return false;
+        while (true) {
+            final int current = count.get();
+            if (current <= 0) return false;
+            if (current == 1) {
+                if (count.compareAndSet(1, RELEASED)) {
+                    mOwners.remove(owner, count);
+                    return true;
+                }
+            } else if (count.compareAndSet(current, current - 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Brings the manager in line with the reference count. Counts may change again before
+     * the lock is taken, so the decision is made on the count seen under the lock.
+     */
+    private void updateManager() {
+        synchronized (mManagerLock) {
+            final boolean referenced = mReferenceCount.get() > 0;
+            if (referenced && mManager == null) {
+                Log.v(TAG, "register " + mName + " global");
+                if (mDispatcher == null) {
+                    mDispatcher = createDispatcher();
+                }
+                try {
+                    mManager = requestManager(mDispatcher);
+                } catch (Exception e) {
+                    Log.e(TAG, "Something went wrong: ", e);
+                }
+            } else if (referenced == false && mManager != null) {
+                Log.v(TAG, "unregister " + mName + " global");
+                final M manager = mManager;
+                mManager = null;
+                try {
+                    unregisterManager(manager);
+                } catch (RemoteException e) {
+                    Log.e(TAG, "Something went wrong: ", e);
+                }
+            }
+        }
+    }
+}
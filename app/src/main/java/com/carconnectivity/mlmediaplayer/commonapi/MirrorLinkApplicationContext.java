@@ -30,6 +30,7 @@
 package com.carconnectivity.mlmediaplayer.commonapi;
 
 import android.app.Application;
+import android.os.Bundle;
 import android.os.RemoteException;
 import android.util.Log;
 
@@ -43,9 +44,8 @@ import com.mirrorlink.android.commonapi.IContextListener;
 import com.mirrorlink.android.commonapi.IContextManager;
 import com.mirrorlink.android.commonapi.IDeviceStatusListener;
 import com.mirrorlink.android.commonapi.IDeviceStatusManager;
-
-import java.util.ArrayList;
-import java.util.List;
+import com.mirrorlink.android.commonapi.IDisplayListener;
+import com.mirrorlink.android.commonapi.IDisplayManager;
 
 public final class MirrorLinkApplicationContext extends Application {
     public static final String TAG = MirrorLinkApplicationContext.class.getSimpleName();
@@ -54,7 +54,7 @@ public final class MirrorLinkApplicationContext extends Application {
     ServiceConnectedCallback serviceConnectedCallback = new ServiceConnectedCallback() {
         @Override
         public void connected(ICommonAPIService service) {
-            mService = service;
+            mService = BinderCallStats.wrap(ICommonAPIService.class, service);
             RsEventBus.postSticky(new ConnectionMirrorLinkServiceEvent(true));
             try {
                 mService.applicationStarted(getPackageName(), 1);
@@ -64,25 +64,186 @@ public final class MirrorLinkApplicationContext extends Application {
         }
     };
     private MlServerApiServiceConnection mlsConnection = null;
-    private IDeviceStatusManager mDeviceStatusManager;
-    private IConnectionManager mConnectionManager = null;
-    private IContextManager mContextManager = null;
+
+    /* managers are registered from the main thread and called back on binder threads,
+     * every registry forwards callbacks to all of its local listeners
+     */
+    private final ManagerRegistry<IDeviceStatusManager, IDeviceStatusListener> mDeviceStatusRegistry
+            = new ManagerRegistry<IDeviceStatusManager, IDeviceStatusListener>("DeviceStatusManager") {
+        @Override
+        protected IDeviceStatusManager requestManager(IDeviceStatusListener dispatcher) throws RemoteException {
+            return BinderCallStats.wrap(IDeviceStatusManager.class
+                    , mService.getDeviceStatusManager(getPackageName(), dispatcher));
+        }
+
+        @Override
+        protected IDeviceStatusListener createDispatcher() {
+            return new IDeviceStatusListener.Stub() {
+                @Override
+                public void onDriveModeChange(boolean driveMode) throws RemoteException {
+                    for (IDeviceStatusListener listener : getListeners()) {
+                        listener.onDriveModeChange(driveMode);
+                    }
+                }
+
+                @Override
+                public void onNightModeChanged(boolean nightMode) throws RemoteException {
+                    for (IDeviceStatusListener listener : getListeners()) {
+                        listener.onNightModeChanged(nightMode);
+                    }
+                }
+
+                @Override
+                public void onMicrophoneStatusChanged(boolean micInput) throws RemoteException {
+                    for (IDeviceStatusListener listener : getListeners()) {
+                        listener.onMicrophoneStatusChanged(micInput);
+                    }
+                }
+            };
+        }
+
+        @Override
+        protected void unregisterManager(IDeviceStatusManager manager) throws RemoteException {
+            manager.unregister();
+        }
+    };
+
+    private final ManagerRegistry<IConnectionManager, IConnectionListener> mConnectionRegistry
+            = new ManagerRegistry<IConnectionManager, IConnectionListener>("ConnectionManager") {
+        @Override
+        protected IConnectionManager requestManager(IConnectionListener dispatcher) throws RemoteException {
+            return BinderCallStats.wrap(IConnectionManager.class
+                    , mService.getConnectionManager(getPackageName(), dispatcher));
+        }
+
+        @Override
+        protected IConnectionListener createDispatcher() {
+            return new IConnectionListener.Stub() {
+                @Override
+                public void onMirrorLinkSessionChanged(boolean mirrorLinkSessionIsEstablished) throws RemoteException {
+                    for (IConnectionListener listener : getListeners()) {
+                        listener.onMirrorLinkSessionChanged(mirrorLinkSessionIsEstablished);
+                    }
+                }
+
+                @Override
+                public void onAudioConnectionsChanged(Bundle audioConnections) throws RemoteException {
+                    for (IConnectionListener listener : getListeners()) {
+                        listener.onAudioConnectionsChanged(audioConnections);
+                    }
+                }
+
+                @Override
+                public void onRemoteDisplayConnectionChanged(int remoteDisplayConnection) throws RemoteException {
+                    for (IConnectionListener listener : getListeners()) {
+                        listener.onRemoteDisplayConnectionChanged(remoteDisplayConnection);
+                    }
+                }
+            };
+        }
+
+        @Override
+        protected void unregisterManager(IConnectionManager manager) throws RemoteException {
+            manager.unregister();
+        }
+    };
+
+    /* manager is read from the audio context publisher thread */
+    private final ManagerRegistry<IContextManager, IContextListener> mContextRegistry
+            = new ManagerRegistry<IContextManager, IContextListener>("ContextManager") {
+        @Override
+        protected IContextManager requestManager(IContextListener dispatcher) throws RemoteException {
+            return BinderCallStats.wrap(IContextManager.class
+                    , mService.getContextManager(getPackageName(), dispatcher));
+        }
+
+        @Override
+        protected IContextListener createDispatcher() {
+            return new IContextListener.Stub() {
+                @Override
+                public void onFramebufferBlocked(int reason, Bundle framebufferArea) throws RemoteException {
+                    for (IContextListener listener : getListeners()) {
+                        listener.onFramebufferBlocked(reason, framebufferArea);
+                    }
+                }
+
+                @Override
+                public void onAudioBlocked(int reason) throws RemoteException {
+                    for (IContextListener listener : getListeners()) {
+                        listener.onAudioBlocked(reason);
+                    }
+                }
+
+                @Override
+                public void onFramebufferUnblocked() throws RemoteException {
+                    for (IContextListener listener : getListeners()) {
+                        listener.onFramebufferUnblocked();
+                    }
+                }
+
+                @Override
+                public void onAudioUnblocked() throws RemoteException {
+                    for (IContextListener listener : getListeners()) {
+                        listener.onAudioUnblocked();
+                    }
+                }
+            };
+        }
+
+        @Override
+        protected void unregisterManager(IContextManager manager) throws RemoteException {
+            manager.unregister();
+        }
+    };
+
+    private final ManagerRegistry<IDisplayManager, IDisplayListener> mDisplayRegistry
+            = new ManagerRegistry<IDisplayManager, IDisplayListener>("DisplayManager") {
+        @Override
+        protected IDisplayManager requestManager(IDisplayListener dispatcher) throws RemoteException {
+            return BinderCallStats.wrap(IDisplayManager.class
+                    , mService.getDisplayManager(getPackageName(), dispatcher));
+        }
+
+        @Override
+        protected IDisplayListener createDispatcher() {
+            return new IDisplayListener.Stub() {
+                @Override
+                public void onDisplayConfigurationChanged(Bundle displayConfiguration) throws RemoteException {
+                    for (IDisplayListener listener : getListeners()) {
+                        listener.onDisplayConfigurationChanged(displayConfiguration);
+                    }
+                }
+
+                @Override
+                public void onPixelFormatChanged(Bundle pixelFormat) throws RemoteException {
+                    for (IDisplayListener listener : getListeners()) {
+                        listener.onPixelFormatChanged(pixelFormat);
+                    }
+                }
+            };
+        }
+
+        @Override
+        protected void unregisterManager(IDisplayManager manager) throws RemoteException {
+            manager.unregister();
+        }
+    };
+
     ServiceDisconnectedCallback serviceDisconnectedCallback = new ServiceDisconnectedCallback() {
         @Override
         public void disconnected() {
             mService = null;
-            RsEventBus.postSticky(new ConnectionMirrorLinkServiceEvent(false));
+            /* event is delivered synchronously and its handlers unregister the managers,
+             * dead binders must be forgotten before that
+             */
+            mDeviceStatusRegistry.invalidate();
+            mConnectionRegistry.invalidate();
+            mContextRegistry.invalidate();
+            mDisplayRegistry.invalidate();
 
-            mConnectionManager = null;
-            mContextManager = null;
+            RsEventBus.postSticky(new ConnectionMirrorLinkServiceEvent(false));
         }
     };
-    private List<IDeviceStatusListener> mDeviceStatusListeners = new ArrayList<>();
-    private List<IConnectionListener> mConnectionApplicationListeners = new ArrayList<>();
-    private List<IContextListener> mContextApplicationListeners = new ArrayList<>();
-    private List<Object> mDeviceStatusManagerReferenceList = new ArrayList<>();
-    private List<Object> mConnectionManagerReferenceList = new ArrayList<>();
-    private List<Object> mContextManagerReferenceList = new ArrayList<>();
 
     @Override
     public void onCreate() {
@@ -95,15 +256,19 @@ public final class MirrorLinkApplicationContext extends Application {
     }
 
     public IConnectionManager getConnectionManager() {
-        return mConnectionManager;
+        return mConnectionRegistry.getManager();
     }
 
     public IContextManager getContextManager() {
-        return mContextManager;
+        return mContextRegistry.getManager();
     }
 
     public IDeviceStatusManager getDeviceStatusManager() {
-        return mDeviceStatusManager;
+        return mDeviceStatusRegistry.getManager();
+    }
+
+    public IDisplayManager getDisplayManager() {
+        return mDisplayRegistry.getManager();
     }
 
     public boolean connect() {
@@ -120,119 +285,34 @@ public final class MirrorLinkApplicationContext extends Application {
     }
 
     public void unregisterDeviceStatusManager(Object obj, IDeviceStatusListener listener) {
-        mDeviceStatusManagerReferenceList.remove(obj);
-
-        if (listener != null)
-            mDeviceStatusListeners.remove(listener);
-
-        Log.v(TAG, "unregisterDeviceStatus local " + obj.getClass().getName());
-
-        if (mDeviceStatusManagerReferenceList.size() == 0) {
-            Log.v(TAG, "unregisterDeviceStatusManager global");
-            try {
-                mDeviceStatusListeners.clear();
-                if (mDeviceStatusManager != null) {
-                    mDeviceStatusManager.unregister();
-                    mDeviceStatusManager = null;
-                }
-            } catch (RemoteException e) {
-                Log.e(TAG, "Something went wrong: ", e);
-            }
-        }
+        mDeviceStatusRegistry.unregister(obj, listener);
     }
 
     public void registerDeviceStatusManager(Object obj, IDeviceStatusListener listener) {
-        Log.v(TAG, "registerDeviceStatusManager local " + obj.getClass().getName());
-
-        if (listener != null)
-            mDeviceStatusListeners.add(listener);
-
-        if (mDeviceStatusManagerReferenceList.size() == 0) {
-            Log.v(TAG, "registerDeviceStatusManager global ");
-            try {
-                mDeviceStatusManager = mService.getDeviceStatusManager(getPackageName(), listener);
-            } catch (Exception e) {
-                Log.e(TAG, "Something went wrong: ", e);
-            }
-        }
-        mDeviceStatusManagerReferenceList.add(obj);
+        mDeviceStatusRegistry.register(obj, listener);
     }
 
     public void unregisterConnectionManager(Object obj, IConnectionListener listener) {
-        mConnectionManagerReferenceList.remove(obj);
-
-        if (listener != null)
-            mConnectionApplicationListeners.remove(listener);
-
-        Log.v(TAG, "unregisterConnectionManager local " + obj.getClass().getName());
-
-        if (mConnectionManagerReferenceList.size() == 0) {
-            Log.v(TAG, "unregisterConnectionManager global");
-            try {
-                mConnectionApplicationListeners.clear();
-                if (mConnectionManager != null) {
-                    mConnectionManager.unregister();
-                    mConnectionManager = null;
-                }
-            } catch (RemoteException e) {
-                Log.e(TAG, "Something went wrong: ", e);
-            }
-        }
+        mConnectionRegistry.unregister(obj, listener);
     }
 
     public void registerConnectionManager(Object obj, IConnectionListener listener) {
-        Log.v(TAG, "registerConnectionManager local " + obj.getClass().getName());
-
-        if (listener != null)
-            mConnectionApplicationListeners.add(listener);
-
-        if (mConnectionManagerReferenceList.size() == 0) {
-            Log.v(TAG, "registerConnectionManager global ");
-            try {
-                mConnectionManager = mService.getConnectionManager(getPackageName(), listener);
-            } catch (Exception e) {
-                Log.e(TAG, "Something went wrong: ", e);
-            }
-        }
-        mConnectionManagerReferenceList.add(obj);
+        mConnectionRegistry.register(obj, listener);
     }
 
     public void unregisterContextManager(Object obj, IContextListener listener) {
-        mContextManagerReferenceList.remove(obj);
-
-        Log.v(TAG, "unregisterContextManager local " + obj.getClass().getName());
-
-        if (listener != null)
-            mContextApplicationListeners.remove(listener);
-
-        if (mContextManagerReferenceList.size() == 0) {
-            Log.v(TAG, "unregisterContextManager global");
-            try {
-                mContextApplicationListeners.clear();
-                if (mContextManager != null) {
-                    mContextManager.unregister();
-                    mContextManager = null;
-                }
-            } catch (RemoteException e) {
-                Log.e(TAG, "Something went wrong: ", e);
-            }
-        }
+        mContextRegistry.unregister(obj, listener);
     }
 
     public void registerContextManager(Object obj, IContextListener listener) {
-        Log.v(TAG, "registerContextManager local " + obj.getClass().getName());
+        mContextRegistry.register(obj, listener);
+    }
 
-        if (listener != null)
-            mContextApplicationListeners.add(listener);
+    public void unregisterDisplayManager(Object obj, IDisplayListener listener) {
+        mDisplayRegistry.unregister(obj, listener);
+    }
 
-        if (mContextManagerReferenceList.size() == 0) {
-            Log.v(TAG, "registerContextManager global ");
-            try {
-                mContextManager = mService.getContextManager(getPackageName(), listener);
-            } catch (Exception e) {
-                Log.e(TAG, "Something went wrong: ", e);
-            }
-        }
-        mContextManagerReferenceList.add(obj);
+    public void registerDisplayManager(Object obj, IDisplayListener listener) {
+        mDisplayRegistry.register(obj, listener);
     }
 }
@@ -38,7 +38,9 @@ import android.util.SparseArray;
 import com.carconnectivity.mlmediaplayer.commonapi.events.AudioBlockingEvent;
 import com.carconnectivity.mlmediaplayer.commonapi.events.AudioContextChangedEvent;
 import com.carconnectivity.mlmediaplayer.commonapi.events.ConnectionMirrorLinkServiceEvent;
+import com.carconnectivity.mlmediaplayer.commonapi.events.DisplayProfileChangedEvent;
 import com.carconnectivity.mlmediaplayer.commonapi.events.DriveModeStatusChangedEvent;
+import com.carconnectivity.mlmediaplayer.commonapi.events.FramebufferBlockingEvent;
 import com.carconnectivity.mlmediaplayer.commonapi.events.MirrorLinkSessionChangedEvent;
 import com.carconnectivity.mlmediaplayer.commonapi.events.PlaybackFailedEvent;
 import com.carconnectivity.mlmediaplayer.commonapi.events.PrepareForPlaybackEvent;
@@ -47,9 +49,10 @@ import com.mirrorlink.android.commonapi.Defs;
 import com.mirrorlink.android.commonapi.IConnectionListener;
 import com.mirrorlink.android.commonapi.IConnectionManager;
 import com.mirrorlink.android.commonapi.IContextListener;
-import com.mirrorlink.android.commonapi.IContextManager;
 import com.mirrorlink.android.commonapi.IDeviceStatusListener;
 import com.mirrorlink.android.commonapi.IDeviceStatusManager;
+import com.mirrorlink.android.commonapi.IDisplayListener;
+import com.mirrorlink.android.commonapi.IDisplayManager;
 
 
 /**
@@ -67,6 +70,7 @@ public final class MirrorLinkConnectionManager {
     }};
     private final int currentCategory = Defs.ContextInformation.APPLICATION_CATEGORY_MEDIA_MUSIC;
     private MirrorLinkApplicationContext mMirrorLinkApplicationContext;
+    private AudioContextPublisher mAudioContextPublisher;
     private Handler mHandler;
     IContextListener mContextListener = new IContextListener.Stub() {
         @Override
@@ -82,10 +86,14 @@ public final class MirrorLinkConnectionManager {
 
         @Override
         public void onFramebufferBlocked(int reason, Bundle framebufferArea) throws RemoteException {
+            Log.d(TAG, "onFramebufferBlocked reason: " + reason);
+            setFramebufferBlocked(true);
         }
 
         @Override
         public void onFramebufferUnblocked() throws RemoteException {
+            Log.d(TAG, "onFramebufferUnblocked");
+            setFramebufferBlocked(false);
         }
 
         @Override
@@ -100,6 +108,7 @@ public final class MirrorLinkConnectionManager {
         }
     };
     private volatile boolean mMirrorLinkActive = false;
+    private volatile boolean mFramebufferBlocked = false;
     private volatile boolean mPlaybackStatus = false;
     IConnectionListener mConnectionListener = new IConnectionListener.Stub() {
         @Override
@@ -115,7 +124,8 @@ public final class MirrorLinkConnectionManager {
                 }
             });
 
-            setAudioContext(mPlaybackStatus);
+            /* new session does not know the audio context yet, send it even if unchanged */
+            mAudioContextPublisher.republish(mPlaybackStatus);
         }
 
         @Override
@@ -145,9 +155,23 @@ public final class MirrorLinkConnectionManager {
         }
     };
 
+    private volatile DisplayProfile mDisplayProfile = DisplayProfile.UNSCALED;
+    IDisplayListener mDisplayListener = new IDisplayListener.Stub() {
+        @Override
+        public void onDisplayConfigurationChanged(Bundle displayConfiguration) throws RemoteException {
+            Log.d(TAG, "onDisplayConfigurationChanged");
+            setDisplayProfile(DisplayProfile.fromConfiguration(displayConfiguration));
+        }
+
+        @Override
+        public void onPixelFormatChanged(Bundle pixelFormat) throws RemoteException {
+        }
+    };
+
     public MirrorLinkConnectionManager(MirrorLinkApplicationContext applicationContext, Handler handler) {
         mHandler = handler;
         mMirrorLinkApplicationContext = applicationContext;
+        mAudioContextPublisher = new AudioContextPublisher(applicationContext, currentCategory);
         RsEventBus.register(this);
         if (mMirrorLinkApplicationContext.getService() == null) {
             if (!mMirrorLinkApplicationContext.connect()) {             // correct -> !mMirrorLinkApplicationContext.connect()
@@ -158,6 +182,7 @@ public final class MirrorLinkConnectionManager {
 
     public void disconnectFromApiService() {
         unregisterMirrorLinkManagers();
+        mAudioContextPublisher.release();
         if (mIsMirrorLinkSupported)
             mMirrorLinkApplicationContext.disconnect();
     }
@@ -170,6 +195,7 @@ public final class MirrorLinkConnectionManager {
                 mMirrorLinkApplicationContext.registerDeviceStatusManager(this, mDeviceStatusListener);
                 mMirrorLinkApplicationContext.registerConnectionManager(this, mConnectionListener);
                 mMirrorLinkApplicationContext.registerContextManager(this, mContextListener);
+                mMirrorLinkApplicationContext.registerDisplayManager(this, mDisplayListener);
 
                 final IConnectionManager connectionManager
                         = mMirrorLinkApplicationContext.getConnectionManager();
@@ -202,7 +228,12 @@ public final class MirrorLinkConnectionManager {
             mMirrorLinkApplicationContext.unregisterDeviceStatusManager(this, mDeviceStatusListener);
             mMirrorLinkApplicationContext.unregisterConnectionManager(this, mConnectionListener);
             mMirrorLinkApplicationContext.unregisterContextManager(this, mContextListener);
+            mMirrorLinkApplicationContext.unregisterDisplayManager(this, mDisplayListener);
         }
+        mAudioContextPublisher.invalidate();
+        /* block cannot be lifted once the listener is gone */
+        setFramebufferBlocked(false);
+        setDisplayProfile(DisplayProfile.UNSCALED);
     }
 
     @SuppressWarnings("unused")
@@ -249,31 +280,58 @@ public final class MirrorLinkConnectionManager {
         updatePlaybackStatus(newStatus);
     }
 
-    private void setAudioContext(boolean isPlaying) {
-        Log.d(TAG, "setAudioContext isPlaying" + isPlaying);
-        try {
-            final IContextManager manager = mMirrorLinkApplicationContext.getContextManager();
-            if (manager != null) {
-                final int[] categories = {currentCategory};
-                manager.setAudioContextInformation(isPlaying, categories, true);
-            }
-        } catch (RemoteException re) {
-            Log.e(TAG, re.getMessage());
-        }
-    }
-
     void setMirrorLinkConnected(boolean connected) {
         Log.d(TAG, "setMirrorLinkConnected connected:" + connected);
         if (mIsMirrorLinkSupported) {
             mMirrorLinkActive = connected;
             RsEventBus.postSticky(new MirrorLinkSessionChangedEvent(mMirrorLinkActive));
+            if (connected) {
+                refreshDisplayProfile();
+            } else {
+                setFramebufferBlocked(false);
+                /* without session nothing is scaled down */
+                setDisplayProfile(DisplayProfile.UNSCALED);
+            }
         }
     }
 
+    private void setFramebufferBlocked(final boolean blocked) {
+        if (mFramebufferBlocked == blocked) return;
+        mFramebufferBlocked = blocked;
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                RsEventBus.postSticky(new FramebufferBlockingEvent(blocked));
+            }
+        });
+    }
+
+    private void refreshDisplayProfile() {
+        final IDisplayManager displayManager = mMirrorLinkApplicationContext.getDisplayManager();
+        if (displayManager == null) return;
+        try {
+            setDisplayProfile(DisplayProfile.fromConfiguration(displayManager.getDisplayConfiguration()));
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to read display configuration: ", e);
+        }
+    }
+
+    private void setDisplayProfile(final DisplayProfile profile) {
+        if (mDisplayProfile.equals(profile)) return;
+        Log.d(TAG, "setDisplayProfile: " + profile);
+        mDisplayProfile = profile;
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                RsEventBus.postSticky(new DisplayProfileChangedEvent(profile));
+            }
+        });
+    }
+
     private void updatePlaybackStatus(boolean playbackStatus) {
         Log.d(TAG, "updatePlaybackStatus playbackStatus:" + playbackStatus);
         mPlaybackStatus = playbackStatus;
-        setAudioContext(playbackStatus);
+        mAudioContextPublisher.publish(playbackStatus);
     }
 
     private enum States {
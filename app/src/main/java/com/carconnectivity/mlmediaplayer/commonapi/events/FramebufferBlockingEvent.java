@@ -27,47 +27,27 @@
  * in or in connection to any CCC products, software and/or services.
  */
 
-package com.carconnectivity.mlmediaplayer.ui.player;
+package com.carconnectivity.mlmediaplayer.commonapi.events;
 
-import com.carconnectivity.mlmediaplayer.mediabrowser.ProviderViewActive;
-import com.carconnectivity.mlmediaplayer.mediabrowser.events.ProgressUpdateEvent;
-import com.carconnectivity.mlmediaplayer.utils.PlaybackUtils;
-import com.carconnectivity.mlmediaplayer.utils.RsEventBus;
-
-import java.util.Timer;
-import java.util.TimerTask;
+import com.carconnectivity.mlmediaplayer.utils.event.RockScoutEvent;
 
 /**
- * Timer for updating playback progress
+ * Informs that the head unit blocked or unblocked our framebuffer, e.g. while
+ * reversing. Nothing drawn while blocked is visible, so rendering may be suspended.
+ * Sticky event
  */
-public class ProgressTimer extends Timer {
-
-    public static final int UPDATE_PERIOD = 1000 / 60; /* 60 fps */
-
-    private long mPos;
-    private long mDuration;
-    private long mLastUpdateTime;
+public final class FramebufferBlockingEvent implements RockScoutEvent {
 
-    public ProgressTimer() {
-    }
-
-    public void setDuration(long duration) {
-        this.mDuration = duration;
-    }
+    public final boolean isFramebufferBlocked;
 
-    public void setPosition(long pos, long lastUpdateTime) {
-        this.mPos = pos;
-        this.mLastUpdateTime = lastUpdateTime;
+    public FramebufferBlockingEvent(boolean framebufferBlocked) {
+        this.isFramebufferBlocked = framebufferBlocked;
     }
 
-    public void start(final ProviderViewActive provider) {
-        scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                final float progressPercentage
-                        = PlaybackUtils.calculateProgressPercentage(mPos, mLastUpdateTime, mDuration);
-                RsEventBus.post(new ProgressUpdateEvent(provider, progressPercentage));
-            }
-        }, 0, UPDATE_PERIOD);
+    @Override
+    public String toString() {
+        return "FramebufferBlockingEvent{" +
+                "isFramebufferBlocked=" + isFramebufferBlocked +
+                '}';
     }
 }
@@ -0,0 +1,166 @@
+/*
+ * Copyright Car Connectivity Consortium
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * You may decide to give the Car Connectivity Consortium input, suggestions
+ * or feedback of a technical nature which may be implemented on the
+ * Car Connectivity Consortium products (“Feedback”).
+ *
+ * You agrees that any such Feedback is given on non-confidential
+ * basis and Licensee hereby waives any confidentiality restrictions
+ * for such Feedback. In addition, Licensee grants to the Car Connectivity Consortium
+ * and its affiliates a worldwide, non-exclusive, perpetual, irrevocable,
+ * sub-licensable, royalty-free right and license under Licensee’s copyrights to copy,
+ * reproduce, modify, create derivative works and directly or indirectly
+ * distribute, make available and communicate to public the Feedback
+ * in or in connection to any CCC products, software and/or services.
+ */
+
+package com.carconnectivity.mlmediaplayer.mediabrowser;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.HashMap;
+
+/**
+ * Subscribes again to root directories which are suspiciously small, which is how
+ * some providers (e.g. Deezer) answer before their content is loaded. The delay
+ * before the next subscription is learned per provider from the time it took
+ * the previous roots to grow. Providers which roots never grow are treated
+ * as complete for COMPLETE_ROOT_PERIOD, so a single slow start does not turn
+ * retries off for good. Offline providers are not retried, as
+ * they often show only a few children then.
+ */
+final class AdaptiveSettlingStrategy implements SettlingStrategy {
+    private static final String TAG = AdaptiveSettlingStrategy.class.getSimpleName();
+
+    public static final int SMALL_RESULT_SIZE = 2;
+    public static final int MAX_ATTEMPTS = 5;
+    public static final long DEFAULT_SETTLE_DELAY = 1000;
+    public static final long MIN_SETTLE_DELAY = 100;
+    public static final long MAX_SETTLE_DELAY = 3000;
+    public static final long COMPLETE_ROOT_PERIOD = 10 * 60 * 1000;
+
+    private final Context mContext;
+    private final HashMap<ComponentName, ProviderStats> mStats;
+
+    public AdaptiveSettlingStrategy(Context context) {
+        if (context == null) {
+            throw new IllegalArgumentException("Context cannot be null.");
+        }
+
+        mContext = context;
+        mStats = new HashMap<>();
+    }
+
+    @Override
+    public Settler start(ComponentName name, String parentId, boolean isRoot) {
+        if (isRoot == false) {
+            return new Settler() {
+                @Override
+                public long onChildrenLoaded(int childrenCount) {
+                    return SETTLED;
+                }
+            };
+        }
+        return new RootSettler(name, getStats(name));
+    }
+
+    private synchronized ProviderStats getStats(ComponentName name) {
+        ProviderStats stats = mStats.get(name);
+        if (stats == null) {
+            stats = new ProviderStats();
+            mStats.put(name, stats);
+        }
+        return stats;
+    }
+
+    private boolean isNetworkConnected() {
+        final ConnectivityManager manager
+                = (ConnectivityManager) mContext.getSystemService(Context.CONNECTIVITY_SERVICE);
+        final NetworkInfo info = manager.getActiveNetworkInfo();
+        return info != null && info.isConnected();
+    }
+
+    private static final class ProviderStats {
+        long settleDelay = DEFAULT_SETTLE_DELAY;
+        /* uptime until which the small root is trusted to be complete */
+        long rootCompleteUntil = 0;
+
+        boolean isRootComplete() {
+            return SystemClock.uptimeMillis() < rootCompleteUntil;
+        }
+
+        void onRootDidNotGrow() {
+            rootCompleteUntil = SystemClock.uptimeMillis() + COMPLETE_ROOT_PERIOD;
+        }
+
+        void onGrown(long elapsed) {
+            rootCompleteUntil = 0;
+            /* moving average, so a single slow answer does not dominate */
+            final long average = (3 * settleDelay + elapsed) / 4;
+            settleDelay = Math.max(MIN_SETTLE_DELAY, Math.min(MAX_SETTLE_DELAY, average));
+        }
+    }
+
+    private final class RootSettler implements Settler {
+        private final ComponentName mName;
+        private final ProviderStats mProviderStats;
+        private final long mStartTime;
+        private int mFirstCount = -1;
+        private int mAttempt = 0;
+
+        RootSettler(ComponentName name, ProviderStats stats) {
+            mName = name;
+            mProviderStats = stats;
+            mStartTime = SystemClock.uptimeMillis();
+        }
+
+        @Override
+        public long onChildrenLoaded(int childrenCount) {
+            if (mFirstCount < 0) {
+                mFirstCount = childrenCount;
+                if (childrenCount > SMALL_RESULT_SIZE || mProviderStats.isRootComplete()
+                        || isNetworkConnected() == false) {
+                    return SETTLED;
+                }
+                return nextAttempt();
+            }
+
+            if (childrenCount > mFirstCount) {
+                final long elapsed = SystemClock.uptimeMillis() - mStartTime;
+                mProviderStats.onGrown(elapsed);
+                Log.d(TAG, "Root of " + mName + " settled after " + elapsed + " ms");
+                return SETTLED;
+            }
+
+            if (mAttempt >= MAX_ATTEMPTS) {
+                Log.d(TAG, "Root of " + mName + " did not grow, treating it as complete");
+                mProviderStats.onRootDidNotGrow();
+                return SETTLED;
+            }
+            return nextAttempt();
+        }
+
+        private long nextAttempt() {
+            mAttempt++;
+            return mProviderStats.settleDelay;
+        }
+    }
+}
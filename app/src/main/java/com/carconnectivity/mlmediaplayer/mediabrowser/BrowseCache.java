@@ -0,0 +1,147 @@
+/*
+ * Copyright Car Connectivity Consortium
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * You may decide to give the Car Connectivity Consortium input, suggestions
+ * or feedback of a technical nature which may be implemented on the
+ * Car Connectivity Consortium products (“Feedback”).
+ *
+ * You agrees that any such Feedback is given on non-confidential
+ * basis and Licensee hereby waives any confidentiality restrictions
+ * for such Feedback. In addition, Licensee grants to the Car Connectivity Consortium
+ * and its affiliates a worldwide, non-exclusive, perpetual, irrevocable,
+ * sub-licensable, royalty-free right and license under Licensee’s copyrights to copy,
+ * reproduce, modify, create derivative works and directly or indirectly
+ * distribute, make available and communicate to public the Feedback
+ * in or in connection to any CCC products, software and/or services.
+ */
+
+package com.carconnectivity.mlmediaplayer.mediabrowser;
+
+import android.content.ComponentName;
+import android.os.SystemClock;
+import android.text.TextUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps recently browsed directories of all providers, so navigating back and forth
+ * can show them immediately while the subscription revalidates them in the background.
+ * Holds at most MAX_ENTRIES directories, least recently used are evicted first,
+ * entries older than TTL are treated as missing.
+ */
+final class BrowseCache {
+    public static final int MAX_ENTRIES = 64;
+    public static final long TTL = 5 * 60 * 1000;
+
+    private final LinkedHashMap<Key, Entry> mEntries
+            = new LinkedHashMap<Key, Entry>(MAX_ENTRIES + 1, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    /**
+     * @return cached children of the directory or null when missing or expired
+     */
+    public synchronized List<MediaItemView> get(ComponentName name, String parentId) {
+        final Key key = new Key(name, parentId);
+        final Entry entry = mEntries.get(key);
+        if (entry == null) return null;
+
+        if (SystemClock.elapsedRealtime() - entry.time > TTL) {
+            mEntries.remove(key);
+            return null;
+        }
+        return entry.items;
+    }
+
+    /**
+     * Stores children of the directory, replacing the previous ones.
+     *
+     * @return true if children differ from the previously cached ones
+     */
+    public synchronized boolean put(ComponentName name, String parentId, List<MediaItemView> items) {
+        final Entry entry = new Entry(Collections.unmodifiableList(new ArrayList<>(items)));
+        final Entry previous = mEntries.put(new Key(name, parentId), entry);
+        return previous == null || sameItems(previous.items, entry.items) == false;
+    }
+
+    /**
+     * Removes all directories of the provider.
+     */
+    public synchronized void invalidate(ComponentName name) {
+        for (Iterator<Key> it = mEntries.keySet().iterator(); it.hasNext(); ) {
+            if (it.next().name.equals(name)) {
+                it.remove();
+            }
+        }
+    }
+
+    private static boolean sameItems(List<MediaItemView> first, List<MediaItemView> second) {
+        if (first.size() != second.size()) return false;
+
+        for (int i = 0; i < first.size(); ++i) {
+            final MediaItemView a = first.get(i);
+            final MediaItemView b = second.get(i);
+            if (TextUtils.equals(a.getId(), b.getId()) == false
+                    || TextUtils.equals(a.getDisplayLabel(), b.getDisplayLabel()) == false
+                    || a.isBrowsable() != b.isBrowsable()
+                    || a.isPlayable() != b.isPlayable()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class Key {
+        final ComponentName name;
+        final String parentId;
+
+        Key(ComponentName name, String parentId) {
+            this.name = name;
+            this.parentId = parentId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            final Key key = (Key) o;
+            return name.equals(key.name) && TextUtils.equals(parentId, key.parentId);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * name.hashCode() + (parentId != null ? parentId.hashCode() : 0);
+        }
+    }
+
+    private static final class Entry {
+        final List<MediaItemView> items;
+        final long time;
+
+        Entry(List<MediaItemView> items) {
+            this.items = items;
+            this.time = SystemClock.elapsedRealtime();
+        }
+    }
+}
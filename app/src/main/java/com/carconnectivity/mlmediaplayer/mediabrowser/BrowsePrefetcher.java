@@ -0,0 +1,193 @@
+/*
+ * Copyright Car Connectivity Consortium
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * You may decide to give the Car Connectivity Consortium input, suggestions
+ * or feedback of a technical nature which may be implemented on the
+ * Car Connectivity Consortium products (“Feedback”).
+ *
+ * You agrees that any such Feedback is given on non-confidential
+ * basis and Licensee hereby waives any confidentiality restrictions
+ * for such Feedback. In addition, Licensee grants to the Car Connectivity Consortium
+ * and its affiliates a worldwide, non-exclusive, perpetual, irrevocable,
+ * sub-licensable, royalty-free right and license under Licensee’s copyrights to copy,
+ * reproduce, modify, create derivative works and directly or indirectly
+ * distribute, make available and communicate to public the Feedback
+ * in or in connection to any CCC products, software and/or services.
+ */
+
+package com.carconnectivity.mlmediaplayer.mediabrowser;
+
+import android.content.ComponentName;
+import android.media.browse.MediaBrowser;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Subscribes in the background to browsable directories shown on the current page
+ * and stores their children in the browse cache, so opening them does not wait
+ * for the provider. At most fanOut directories of the page are prefetched,
+ * with no more than maxConcurrent subscriptions at once. Each subscription is
+ * dropped after its children are loaded or after PREFETCH_TIMEOUT. The same page
+ * requested again is ignored. While paused nothing is subscribed, the page is
+ * prefetched after resuming. Must be used from the main looper.
+ */
+final class BrowsePrefetcher {
+    private static final String TAG = BrowsePrefetcher.class.getSimpleName();
+
+    public static final int DEFAULT_FAN_OUT = 4;
+    public static final int DEFAULT_MAX_CONCURRENT = 2;
+    public static final long PREFETCH_TIMEOUT = 10000;
+
+    private final ComponentName mName;
+    private final MediaBrowser mBrowser;
+    private final BrowseCache mCache;
+    private final int mFanOut;
+    private final int mMaxConcurrent;
+    private final Handler mHandler;
+    private final ArrayDeque<String> mPending;
+    private final HashMap<String, Runnable> mRunning;
+    private List<String> mLastPage;
+    private boolean mPaused = false;
+
+    public BrowsePrefetcher(ComponentName name, MediaBrowser browser, BrowseCache cache
+            , int fanOut, int maxConcurrent) {
+        if (fanOut < 0 || maxConcurrent < 1) {
+            throw new IllegalArgumentException("Invalid fan-out or concurrency limit.");
+        }
+
+        mName = name;
+        mBrowser = browser;
+        mCache = cache;
+        mFanOut = fanOut;
+        mMaxConcurrent = maxConcurrent;
+        mHandler = new Handler(Looper.getMainLooper());
+        mPending = new ArrayDeque<>();
+        mRunning = new HashMap<>();
+    }
+
+    /**
+     * Replaces directories waiting for prefetch with the ones from the new page,
+     * already running subscriptions are finished.
+     */
+    public void prefetch(List<String> directoryIds) {
+        if (directoryIds.equals(mLastPage)) return;
+        mLastPage = new ArrayList<>(directoryIds);
+
+        mPending.clear();
+        for (String id : directoryIds) {
+            if (mPending.size() >= mFanOut) break;
+            if (id == null || mRunning.containsKey(id) || mPending.contains(id)) continue;
+            if (mCache.get(mName, id) != null) continue;
+            mPending.add(id);
+        }
+        startPending();
+    }
+
+    /**
+     * Called when the directory is subscribed for display, the subscription now belongs
+     * to the caller and must not be unsubscribed by the prefetcher.
+     */
+    public void onSubscribed(String directoryId) {
+        mPending.remove(directoryId);
+        final Runnable timeout = mRunning.remove(directoryId);
+        if (timeout != null) {
+            mHandler.removeCallbacks(timeout);
+            startPending();
+        }
+    }
+
+    /**
+     * Pauses prefetching, e.g. while the playing provider is buffering. Running
+     * subscriptions are dropped and subscribed again after resuming.
+     */
+    public void setPaused(boolean paused) {
+        if (mPaused == paused) return;
+        mPaused = paused;
+        if (paused == false) {
+            startPending();
+            return;
+        }
+
+        final ArrayList<String> running = new ArrayList<>(mRunning.keySet());
+        for (String id : running) {
+            finish(id);
+            mPending.addFirst(id);
+        }
+    }
+
+    public void cancel() {
+        mPending.clear();
+        for (String id : new ArrayList<>(mRunning.keySet())) {
+            finish(id);
+        }
+    }
+
+    private void startPending() {
+        while (mPaused == false
+                && mRunning.size() < mMaxConcurrent
+                && mPending.isEmpty() == false) {
+            start(mPending.poll());
+        }
+    }
+
+    private void start(final String directoryId) {
+        final Runnable timeout = new Runnable() {
+            @Override
+            public void run() {
+                Log.d(TAG, "Prefetch timed out: " + directoryId);
+                finish(directoryId);
+                startPending();
+            }
+        };
+        mRunning.put(directoryId, timeout);
+        mHandler.postDelayed(timeout, PREFETCH_TIMEOUT);
+
+        mBrowser.subscribe(directoryId, new MediaBrowser.SubscriptionCallback() {
+            @Override
+            public void onChildrenLoaded(String parentId, List<MediaBrowser.MediaItem> children) {
+                if (mRunning.containsKey(parentId) == false) return;
+
+                mCache.put(mName, parentId, Provider.convertToViews(children));
+                finish(parentId);
+                startPending();
+            }
+
+            @Override
+            public void onError(String id) {
+                if (mRunning.containsKey(id) == false) return;
+
+                Log.d(TAG, "Prefetch failed: " + id);
+                finish(id);
+                startPending();
+            }
+        });
+    }
+
+    private void finish(String directoryId) {
+        final Runnable timeout = mRunning.remove(directoryId);
+        if (timeout == null) return;
+
+        mHandler.removeCallbacks(timeout);
+        if (mBrowser.isConnected()) {
+            mBrowser.unsubscribe(directoryId);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright Car Connectivity Consortium
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * You may decide to give the Car Connectivity Consortium input, suggestions
+ * or feedback of a technical nature which may be implemented on the
+ * Car Connectivity Consortium products (“Feedback”).
+ *
+ * You agrees that any such Feedback is given on non-confidential
+ * basis and Licensee hereby waives any confidentiality restrictions
+ * for such Feedback. In addition, Licensee grants to the Car Connectivity Consortium
+ * and its affiliates a worldwide, non-exclusive, perpetual, irrevocable,
+ * sub-licensable, royalty-free right and license under Licensee’s copyrights to copy,
+ * reproduce, modify, create derivative works and directly or indirectly
+ * distribute, make available and communicate to public the Feedback
+ * in or in connection to any CCC products, software and/or services.
+ */
+
+package com.carconnectivity.mlmediaplayer.mediabrowser;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.media.browse.MediaBrowser;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Keeps connections to recently used providers alive, so connecting to them again
+ * does not pay for binding the service and acquiring the session token.
+ * Released browsers stay connected until they are evicted as least recently used,
+ * at most MAX_IDLE_CONNECTIONS of them are kept to limit held service bindings.
+ * Must be used from the main looper, the same one MediaBrowser callbacks are called on.
+ */
+final class BrowserConnectionPool {
+    private static final String TAG = BrowserConnectionPool.class.getSimpleName();
+
+    public static final int MAX_IDLE_CONNECTIONS = 3;
+
+    private final Context mContext;
+    private final Handler mHandler;
+    private final LinkedHashMap<ComponentName, PooledConnection> mIdle;
+    /* browsers not released by their users are not kept alive by the pool */
+    private final WeakHashMap<MediaBrowser, DelegatingCallback> mCallbacks;
+
+    public BrowserConnectionPool(Context context) {
+        if (context == null) {
+            throw new IllegalArgumentException("Context cannot be null.");
+        }
+
+        mContext = context;
+        mHandler = new Handler(Looper.getMainLooper());
+        mIdle = new LinkedHashMap<>(MAX_IDLE_CONNECTIONS + 1, 0.75f, true);
+        mCallbacks = new WeakHashMap<>();
+    }
+
+    /**
+     * Returns browser connected or connecting to the provider. When idle connection is reused
+     * onConnected is posted to the callback, so it is called asynchronously in both cases.
+     */
+    public MediaBrowser acquire(ComponentName name, final MediaBrowser.ConnectionCallback callback) {
+        final PooledConnection idle = mIdle.remove(name);
+        if (idle != null && idle.browser.isConnected()) {
+            Log.d(TAG, "Reusing connection to provider: " + name);
+            idle.callback.setTarget(callback);
+            mHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    idle.callback.onConnected();
+                }
+            });
+            return idle.browser;
+        } else if (idle != null) {
+            disconnect(idle);
+        }
+
+        final DelegatingCallback delegate = new DelegatingCallback(name);
+        delegate.setTarget(callback);
+        final MediaBrowser browser = new MediaBrowser(mContext, name, delegate, null);
+        mCallbacks.put(browser, delegate);
+        browser.connect();
+        return browser;
+    }
+
+    /**
+     * Returns browser to the pool instead of disconnecting it. Browsers which lost
+     * connection are disconnected right away.
+     */
+    public void release(ComponentName name, MediaBrowser browser) {
+        if (browser == null) return;
+
+        final DelegatingCallback callback = mCallbacks.get(browser);
+        if (callback == null || browser.isConnected() == false) {
+            mCallbacks.remove(browser);
+            browser.disconnect();
+            return;
+        }
+
+        callback.setTarget(null);
+        final PooledConnection previous = mIdle.put(name, new PooledConnection(browser, callback));
+        if (previous != null && previous.browser != browser) {
+            disconnect(previous);
+        }
+        trimToSize(MAX_IDLE_CONNECTIONS);
+    }
+
+    /**
+     * Disconnects idle connection to the provider, e.g. when its package was removed.
+     */
+    public void evict(final ComponentName name) {
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                final PooledConnection connection = mIdle.remove(name);
+                if (connection != null) {
+                    disconnect(connection);
+                }
+            }
+        });
+    }
+
+    public void evictAll() {
+        trimToSize(0);
+    }
+
+    private void trimToSize(int size) {
+        final Iterator<Map.Entry<ComponentName, PooledConnection>> it = mIdle.entrySet().iterator();
+        while (mIdle.size() > size && it.hasNext()) {
+            final Map.Entry<ComponentName, PooledConnection> eldest = it.next();
+            Log.d(TAG, "Evicting connection to provider: " + eldest.getKey());
+            disconnect(eldest.getValue());
+            it.remove();
+        }
+    }
+
+    private void disconnect(PooledConnection connection) {
+        mCallbacks.remove(connection.browser);
+        connection.browser.disconnect();
+    }
+
+    private void onIdleConnectionLost(ComponentName name, DelegatingCallback callback) {
+        final PooledConnection connection = mIdle.get(name);
+        if (connection != null && connection.callback == callback) {
+            Log.d(TAG, "Idle connection lost: " + name);
+            mIdle.remove(name);
+            disconnect(connection);
+        }
+    }
+
+    private static final class PooledConnection {
+        final MediaBrowser browser;
+        final DelegatingCallback callback;
+
+        PooledConnection(MediaBrowser browser, DelegatingCallback callback) {
+            this.browser = browser;
+            this.callback = callback;
+        }
+    }
+
+    /**
+     * MediaBrowser callback cannot be replaced after it is created, callbacks are
+     * forwarded to the current user of the browser instead.
+     */
+    private final class DelegatingCallback extends MediaBrowser.ConnectionCallback {
+        private final ComponentName mName;
+        private MediaBrowser.ConnectionCallback mTarget;
+
+        DelegatingCallback(ComponentName name) {
+            mName = name;
+        }
+
+        void setTarget(MediaBrowser.ConnectionCallback target) {
+            mTarget = target;
+        }
+
+        @Override
+        public void onConnected() {
+            if (mTarget != null) {
+                mTarget.onConnected();
+            }
+        }
+
+        @Override
+        public void onConnectionFailed() {
+            if (mTarget != null) {
+                mTarget.onConnectionFailed();
+            } else {
+                onIdleConnectionLost(mName, this);
+            }
+        }
+
+        @Override
+        public void onConnectionSuspended() {
+            if (mTarget != null) {
+                mTarget.onConnectionSuspended();
+            } else {
+                onIdleConnectionLost(mName, this);
+            }
+        }
+    }
+}
@@ -29,41 +29,199 @@
 
 package com.carconnectivity.mlmediaplayer.mediabrowser;
 
-import android.graphics.drawable.Drawable;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+import android.util.LruCache;
 
-import java.lang.ref.WeakReference;
-import java.util.HashMap;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
- * Created by belickim on 09/07/15.
+ * Process wide cache of trimmed custom action icons, keyed by provider package, its version
+ * code, drawable id and the scale of the head unit display the icon was sized for. Bitmaps
+ * are kept in memory in LRU order bounded by their byte size and persisted as PNG files, so
+ * icons survive provider reconnects and process restarts. Files of older package versions
+ * are removed when a newer version is stored. Lookups read only the memory tier, icons of
+ * a provider are loaded into it from disk in the background by warm, before they are needed.
  */
 public final class IconCache {
-    private final HashMap<Integer, WeakReference<Drawable>> mDrawables;
+    private static final String TAG = IconCache.class.getSimpleName();
+    private static final String DIRECTORY_NAME = "icons";
+    private static final String FILE_EXTENSION = ".png";
+    private static final int MAX_MEMORY_BYTES = 2 * 1024 * 1024;
+    private static final long MAX_DISK_BYTES = 4 * 1024 * 1024;
 
-    public IconCache() {
-        mDrawables = new HashMap<>();
+    private static IconCache sInstance;
+
+    private final LruCache<String, Bitmap> mMemory;
+    private final File mDirectory;
+    private final PackageManager mPackageManager;
+    /* disk reads, writes and trimming are serialized on a single background thread */
+    private final ExecutorService mWriter;
+
+    public static synchronized IconCache getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new IconCache(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private IconCache(Context context) {
+        mMemory = new LruCache<String, Bitmap>(MAX_MEMORY_BYTES) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return value.getAllocationByteCount();
+            }
+        };
+        mDirectory = new File(context.getCacheDir(), DIRECTORY_NAME);
+        mPackageManager = context.getPackageManager();
+        mWriter = Executors.newSingleThreadExecutor();
+    }
+
+    /**
+     * Returns cached icon from memory, does not touch the disk.
+     *
+     * @return trimmed icon bitmap or null if it is not in memory
+     */
+    public Bitmap get(String packageName, int versionCode, int drawableId, int scalePercent) {
+        return mMemory.get(createKey(packageName, versionCode, drawableId, scalePercent));
+    }
+
+    /**
+     * Schedules loading icons of the installed version of the package from disk into memory,
+     * e.g. when the provider is discovered or connected.
+     */
+    public void warm(final String packageName) {
+        if (packageName == null) return;
+        mWriter.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    final int versionCode = mPackageManager.getPackageInfo(packageName, 0).versionCode;
+                    read(packageName + "-" + versionCode + "-");
+                } catch (PackageManager.NameNotFoundException e) {
+                    Log.w(TAG, "Not warming icons of missing package: " + packageName);
+                }
+            }
+        });
     }
 
-    public void addResource(int id, Drawable icon) {
-        mDrawables.put(id, new WeakReference<>(icon));
+    /**
+     * Stores icon in memory and schedules writing it to disk.
+     */
+    public void put(final String packageName, final int versionCode, int drawableId, int scalePercent
+            , final Bitmap bitmap) {
+        if (packageName == null || bitmap == null) return;
+        final String key = createKey(packageName, versionCode, drawableId, scalePercent);
+        mMemory.put(key, bitmap);
+        mWriter.execute(new Runnable() {
+            @Override
+            public void run() {
+                write(key, bitmap);
+                removeOtherVersions(packageName, versionCode);
+                trimToSize();
+            }
+        });
     }
 
-    public boolean hasResource(int id) {
-        if (mDrawables.containsKey(id)) {
-            WeakReference<Drawable> maybeDrawable = mDrawables.get(id);
-            return maybeDrawable.get() != null;
+    private static String createKey(String packageName, int versionCode, int drawableId, int scalePercent) {
+        /* package names cannot contain a dash, which makes the package prefix unambiguous */
+        return packageName + "-" + versionCode + "-" + drawableId + "-" + scalePercent;
+    }
+
+    private void read(String versionPrefix) {
+        final File[] files = mDirectory.listFiles();
+        if (files == null) return;
+        for (File file : files) {
+            final String name = file.getName();
+            if (name.startsWith(versionPrefix) == false || name.endsWith(FILE_EXTENSION) == false) {
+                continue;
+            }
+            final String key = name.substring(0, name.length() - FILE_EXTENSION.length());
+            if (mMemory.get(key) != null) continue;
+            final Bitmap bitmap = BitmapFactory.decodeFile(file.getPath());
+            if (bitmap == null) {
+                Log.w(TAG, "Failed to decode cached icon: " + file);
+                continue;
+            }
+            mMemory.put(key, bitmap);
         }
-        return false;
     }
 
-    public Drawable getResource(int id) {
-        if (hasResource(id) == false) {
-            throw new IllegalStateException("Given resource is missing.");
+    private void write(String key, Bitmap bitmap) {
+        if (mDirectory.isDirectory() == false && mDirectory.mkdirs() == false) {
+            Log.w(TAG, "Failed to create icon cache directory: " + mDirectory);
+            return;
+        }
+        final File file = new File(mDirectory, key + FILE_EXTENSION);
+        /* write to a temporary file first so readers never see a partial icon */
+        final File temporary = new File(mDirectory, key + ".tmp");
+        FileOutputStream stream = null;
+        try {
+            stream = new FileOutputStream(temporary);
+            bitmap.compress(Bitmap.CompressFormat.PNG, 100, stream);
+            stream.close();
+            stream = null;
+            if (temporary.renameTo(file) == false) {
+                Log.w(TAG, "Failed to store cached icon: " + file);
+                temporary.delete();
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write cached icon: " + file, e);
+            temporary.delete();
+        } finally {
+            if (stream != null) {
+                try {
+                    stream.close();
+                } catch (IOException ignored) {
+                }
+            }
         }
-        return mDrawables.get(id).get();
     }
 
-    public void reset() {
-        mDrawables.clear();
+    private void removeOtherVersions(String packageName, int versionCode) {
+        final File[] files = mDirectory.listFiles();
+        if (files == null) return;
+        final String packagePrefix = packageName + "-";
+        final String versionPrefix = packagePrefix + versionCode + "-";
+        for (File file : files) {
+            final String name = file.getName();
+            if (name.startsWith(packagePrefix) && name.startsWith(versionPrefix) == false) {
+                file.delete();
+            }
+        }
+    }
+
+    private void trimToSize() {
+        final File[] files = mDirectory.listFiles();
+        if (files == null) return;
+        long total = 0;
+        for (File file : files) {
+            total += file.length();
+        }
+        if (total <= MAX_DISK_BYTES) return;
+
+        /* remove least recently written icons first */
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File lhs, File rhs) {
+                return Long.compare(lhs.lastModified(), rhs.lastModified());
+            }
+        });
+        for (File file : files) {
+            if (total <= MAX_DISK_BYTES) break;
+            final long length = file.length();
+            if (file.delete()) {
+                total -= length;
+            }
+        }
     }
 }
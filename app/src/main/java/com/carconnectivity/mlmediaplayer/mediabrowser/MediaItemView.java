@@ -30,7 +30,9 @@
 package com.carconnectivity.mlmediaplayer.mediabrowser;
 
 import android.graphics.Bitmap;
+import android.media.MediaDescription;
 import android.media.browse.MediaBrowser;
+import android.media.session.MediaSession;
 import android.net.Uri;
 import android.os.Bundle;
 
@@ -40,38 +42,59 @@ import com.carconnectivity.mlmediaplayer.utils.UiUtilities;
  * Created by belickim on 20/04/15.
  */
 public class MediaItemView {
-    private final MediaBrowser.MediaItem mItem;
+    private final MediaDescription mDescription;
+    private final int mFlags;
+    private final long mQueueId;
 
     public MediaItemView(MediaBrowser.MediaItem item) {
-        mItem = item;
+        mDescription = item.getDescription();
+        mFlags = item.getFlags();
+        mQueueId = MediaSession.QueueItem.UNKNOWN_ID;
+    }
+
+    /**
+     * Creates view of a play queue item, queue items are always playable.
+     */
+    public MediaItemView(MediaSession.QueueItem item) {
+        mDescription = item.getDescription();
+        mFlags = MediaBrowser.MediaItem.FLAG_PLAYABLE;
+        mQueueId = item.getQueueId();
     }
 
     public String getId() {
-        return mItem.getMediaId();
+        return mDescription.getMediaId();
+    }
+
+    public boolean isQueueItem() {
+        return mQueueId != MediaSession.QueueItem.UNKNOWN_ID;
+    }
+
+    public long getQueueId() {
+        return mQueueId;
     }
 
     public boolean isBrowsable() {
-        return mItem.isBrowsable();
+        return (mFlags & MediaBrowser.MediaItem.FLAG_BROWSABLE) != 0;
     }
 
     public boolean isPlayable() {
-        return mItem.isPlayable();
+        return (mFlags & MediaBrowser.MediaItem.FLAG_PLAYABLE) != 0;
     }
 
     public Bitmap getDisplayIconBitmap() {
-        return mItem.getDescription().getIconBitmap();
+        return mDescription.getIconBitmap();
     }
 
     public Uri getDisplayIconUri() {
-        return mItem.getDescription().getIconUri();
+        return mDescription.getIconUri();
     }
 
     public Bundle getExtras() {
-        return mItem.getDescription().getExtras();
+        return mDescription.getExtras();
     }
 
     public String getDisplayLabel() {
-        final CharSequence charSequenceTitle = mItem.getDescription().getTitle();
+        final CharSequence charSequenceTitle = mDescription.getTitle();
         final String rawTitle = charSequenceTitle != null ? charSequenceTitle.toString() : "";
         return UiUtilities.trimLabelText(rawTitle);
     }
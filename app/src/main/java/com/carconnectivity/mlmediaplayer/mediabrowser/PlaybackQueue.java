@@ -0,0 +1,191 @@
+/*
+ * Copyright Car Connectivity Consortium
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * You may decide to give the Car Connectivity Consortium input, suggestions
+ * or feedback of a technical nature which may be implemented on the
+ * Car Connectivity Consortium products (“Feedback”).
+ *
+ * You agrees that any such Feedback is given on non-confidential
+ * basis and Licensee hereby waives any confidentiality restrictions
+ * for such Feedback. In addition, Licensee grants to the Car Connectivity Consortium
+ * and its affiliates a worldwide, non-exclusive, perpetual, irrevocable,
+ * sub-licensable, royalty-free right and license under Licensee’s copyrights to copy,
+ * reproduce, modify, create derivative works and directly or indirectly
+ * distribute, make available and communicate to public the Feedback
+ * in or in connection to any CCC products, software and/or services.
+ */
+
+package com.carconnectivity.mlmediaplayer.mediabrowser;
+
+import android.media.MediaDescription;
+import android.media.session.MediaSession;
+import android.text.TextUtils;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of the session play queue with the active queue item id. Updates
+ * are compared with the previous snapshot, so only the changed range has to be refreshed,
+ * and the items are exposed as a lazy list wrapping only the items which are read.
+ */
+public final class PlaybackQueue {
+    public static final PlaybackQueue EMPTY
+            = new PlaybackQueue(Collections.<MediaSession.QueueItem>emptyList()
+            , MediaSession.QueueItem.UNKNOWN_ID);
+
+    private final List<MediaSession.QueueItem> mItems;
+    private final long mActiveItemId;
+    /* queue id to position, built on first lookup */
+    private Map<Long, Integer> mPositions;
+
+    private PlaybackQueue(List<MediaSession.QueueItem> items, long activeItemId) {
+        mItems = items;
+        mActiveItemId = activeItemId;
+    }
+
+    public static PlaybackQueue create(List<MediaSession.QueueItem> items, long activeItemId) {
+        if (items == null || items.isEmpty()) {
+            return new PlaybackQueue(Collections.<MediaSession.QueueItem>emptyList(), activeItemId);
+        }
+        return new PlaybackQueue(Collections.unmodifiableList(new ArrayList<>(items)), activeItemId);
+    }
+
+    /**
+     * @return snapshot sharing items with this one, with different active item
+     */
+    public PlaybackQueue withActiveItemId(long activeItemId) {
+        if (activeItemId == mActiveItemId) return this;
+        final PlaybackQueue queue = new PlaybackQueue(mItems, activeItemId);
+        queue.mPositions = mPositions;
+        return queue;
+    }
+
+    public int size() {
+        return mItems.size();
+    }
+
+    public MediaSession.QueueItem get(int position) {
+        return mItems.get(position);
+    }
+
+    public long getActiveItemId() {
+        return mActiveItemId;
+    }
+
+    public int getActivePosition() {
+        return indexOf(mActiveItemId);
+    }
+
+    /**
+     * @return position of the item with given queue id or -1 if there is none
+     */
+    public synchronized int indexOf(long queueId) {
+        if (queueId == MediaSession.QueueItem.UNKNOWN_ID) return -1;
+        if (mPositions == null) {
+            final Map<Long, Integer> positions = new HashMap<>(mItems.size() * 2);
+            for (int i = 0; i < mItems.size(); i++) {
+                positions.put(mItems.get(i).getQueueId(), i);
+            }
+            mPositions = positions;
+        }
+        final Integer position = mPositions.get(queueId);
+        return position != null ? position : -1;
+    }
+
+    /**
+     * @return items as media item views, created when read
+     */
+    public List<MediaItemView> asMediaItemViews() {
+        return new AbstractList<MediaItemView>() {
+            @Override
+            public MediaItemView get(int location) {
+                return new MediaItemView(mItems.get(location));
+            }
+
+            @Override
+            public int size() {
+                return mItems.size();
+            }
+        };
+    }
+
+    /**
+     * Finds range of positions in this queue which differ from the previous snapshot,
+     * by skipping the common prefix and suffix of both, extended by the positions of
+     * the previous and current active items.
+     *
+     * @return first and last (inclusive) changed position, null if nothing changed
+     */
+    public int[] findChangedRange(PlaybackQueue previous) {
+        int[] range = findChangedItemsRange(previous);
+        if (previous.mActiveItemId != mActiveItemId) {
+            range = extendRange(range, indexOf(previous.mActiveItemId));
+            range = extendRange(range, getActivePosition());
+        }
+        return range;
+    }
+
+    private int[] findChangedItemsRange(PlaybackQueue previous) {
+        final List<MediaSession.QueueItem> oldItems = previous.mItems;
+        final int oldSize = oldItems.size();
+        final int newSize = mItems.size();
+
+        int prefix = 0;
+        final int shorter = Math.min(oldSize, newSize);
+        while (prefix < shorter && isSameItem(oldItems.get(prefix), mItems.get(prefix))) {
+            prefix++;
+        }
+        if (prefix == oldSize && prefix == newSize) return null;
+
+        int suffix = 0;
+        while (suffix < shorter - prefix
+                && isSameItem(oldItems.get(oldSize - 1 - suffix), mItems.get(newSize - 1 - suffix))) {
+            suffix++;
+        }
+        /* pure removal leaves the range empty, the first shifted position is refreshed then */
+        final int last = Math.max(newSize - 1 - suffix, prefix);
+        return new int[]{prefix, last};
+    }
+
+    private static int[] extendRange(int[] range, int position) {
+        if (position < 0) return range;
+        if (range == null) return new int[]{position, position};
+        range[0] = Math.min(range[0], position);
+        range[1] = Math.max(range[1], position);
+        return range;
+    }
+
+    private static boolean isSameItem(MediaSession.QueueItem lhs, MediaSession.QueueItem rhs) {
+        if (lhs.getQueueId() != rhs.getQueueId()) return false;
+        final MediaDescription lhsDescription = lhs.getDescription();
+        final MediaDescription rhsDescription = rhs.getDescription();
+        return TextUtils.equals(lhsDescription.getMediaId(), rhsDescription.getMediaId())
+                && TextUtils.equals(lhsDescription.getTitle(), rhsDescription.getTitle())
+                && TextUtils.equals(lhsDescription.getSubtitle(), rhsDescription.getSubtitle());
+    }
+
+    @Override
+    public String toString() {
+        return "PlaybackQueue{" +
+                "size=" + mItems.size() +
+                ", activeItemId=" + mActiveItemId +
+                '}';
+    }
+}
@@ -30,15 +30,12 @@
 package com.carconnectivity.mlmediaplayer.mediabrowser;
 
 import android.content.ComponentName;
-import android.content.Context;
 import android.content.pm.ResolveInfo;
 import android.content.pm.ServiceInfo;
 import android.media.browse.MediaBrowser;
 import android.media.session.MediaController;
 import android.media.session.MediaSession;
 import android.media.session.PlaybackState;
-import android.net.ConnectivityManager;
-import android.net.NetworkInfo;
 import android.os.Handler;
 import android.os.Looper;
 import android.util.Log;
@@ -51,6 +48,7 @@ import com.carconnectivity.mlmediaplayer.mediabrowser.events.ProviderConnectErro
 import com.carconnectivity.mlmediaplayer.mediabrowser.events.ProviderConnectedEvent;
 import com.carconnectivity.mlmediaplayer.mediabrowser.model.TrackMetadata;
 import com.carconnectivity.mlmediaplayer.utils.RsEventBus;
+import com.carconnectivity.mlmediaplayer.utils.event.EventHandler;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -68,6 +66,8 @@ final class Provider {
     private boolean mCanConnect;
     private boolean mCanPlayOffline; /* offline = without ML session */
     private ConnectionCallback mActiveConnectionCallback;
+    private TestConnectionCallback mTestConnectionCallback;
+    private boolean mPrefetchPaused = false;
 
     public Provider(ProvidersManager manager, ResolveInfo packageInfo, boolean canPlayOffline) {
         if (manager == null) {
@@ -115,6 +115,10 @@ final class Provider {
         return mMediaController.isPlayingOrPreparing();
     }
 
+    public boolean isBuffering() {
+        return mMediaController.isBuffering();
+    }
+
     public TrackMetadata getCurrentMetadata() {
         return mMediaController.getCurrentMetadata();
     }
@@ -123,6 +127,10 @@ final class Provider {
         return mMediaController.getPlaybackState();
     }
 
+    public PlaybackQueue getQueue() {
+        return mMediaController.getQueue();
+    }
+
     public ProviderViewActive getView() {
         return mManager.getProviderView(mName);
     }
@@ -135,7 +143,21 @@ final class Provider {
         if (mConnected) {
             throw new IllegalStateException("Provider is already connected.");
         }
-        connectWithCallback(new TestConnectionCallback());
+        mTestConnectionCallback = new TestConnectionCallback();
+        connectWithCallback(mTestConnectionCallback);
+    }
+
+    /**
+     * Unbinds the test connection which did not report, its result is not reported anymore.
+     * Must be called on the main looper.
+     */
+    public void cancelTestConnection() {
+        final TestConnectionCallback callback = mTestConnectionCallback;
+        mTestConnectionCallback = null;
+        if (callback != null) {
+            Log.d(TAG, "Cancelling test connection: " + mName);
+            callback.cancel();
+        }
     }
 
     public void connect(boolean showPlayer) {
@@ -146,6 +168,26 @@ final class Provider {
         }
     }
 
+    /**
+     * Loads children of the given directories into the browse cache in the background.
+     */
+    public void prefetch(List<String> directoryIds) {
+        if (mConnected && mActiveConnectionCallback != null) {
+            mActiveConnectionCallback.prefetch(directoryIds);
+        }
+    }
+
+    /**
+     * Pauses background prefetch, e.g. while the playing provider is buffering.
+     * Must be called on the main looper.
+     */
+    public void setPrefetchPaused(boolean paused) {
+        mPrefetchPaused = paused;
+        if (mActiveConnectionCallback != null) {
+            mActiveConnectionCallback.setPrefetchPaused(paused);
+        }
+    }
+
     public void disconnect() {
         Log.d(TAG, "Disconnect from provider: " + mName);
         if (mActiveConnectionCallback != null) {
@@ -161,19 +203,33 @@ final class Provider {
         handler.post(new Runnable() {
             @Override
             public void run() {
-                final MediaBrowser browser = createBrowser(callback);
+                final ReconnectScheduler scheduler = mManager.getReconnectScheduler();
+                scheduler.cancel(mName);
+                if (callback.isTestConnection() && scheduler.isParked(mName)) {
+                    Log.d(TAG, "Provider is parked, skipping test connection: " + mName);
+                    /* not tested is not a failure, it would park the provider again */
+                    mManager.addTestedProvider(mName, false, false);
+                    scheduler.scheduleAfterPark(mName, new Runnable() {
+                        @Override
+                        public void run() {
+                            if (mConnected == false) {
+                                testConnection();
+                            }
+                        }
+                    });
+                    return;
+                }
+
+                /* pool connects the browser or posts onConnected for a warm one */
+                final MediaBrowser browser
+                        = mManager.getConnectionPool().acquire(mName, callback);
                 callback.setBrowser(browser);
                 callback.setProvider(provider);
-                browser.connect();
             }
         });
     }
 
-    private MediaBrowser createBrowser(MediaBrowser.ConnectionCallback callback) {
-        return new MediaBrowser(mManager.getContext(), mName, callback, null);
-    }
-
-    private ArrayList<MediaItemView> convertToViews(List<MediaBrowser.MediaItem> children) {
+    static ArrayList<MediaItemView> convertToViews(List<MediaBrowser.MediaItem> children) {
         ArrayList<MediaItemView> views = new ArrayList<>();
         for (MediaBrowser.MediaItem mediaItem : children
                 ) {
@@ -185,8 +241,6 @@ final class Provider {
     }
 
     private abstract class ConnectionCallbackBase extends MediaBrowser.ConnectionCallback {
-        private final int MAX_RECONNECT = 20;
-        private final int TIME_BEFORE_RECONNECT = 250;
         private int mCountReconnect;
 
         private MediaBrowser mBrowser = null;
@@ -198,6 +252,10 @@ final class Provider {
             mCountReconnect = 0;
         }
 
+        public boolean isTestConnection() {
+            return mTestConnection;
+        }
+
         public MediaBrowser getBrowser() {
             return mBrowser;
         }
@@ -214,40 +272,52 @@ final class Provider {
             mProvider = browser;
         }
 
+        /**
+         * Keeps the connection warm in the pool instead of disconnecting.
+         */
+        protected void releaseBrowser() {
+            mManager.getConnectionPool().release(mName, mBrowser);
+        }
+
         private void reconnect() {
             getBrowser().disconnect();
             mMediaController.stopListening();
             mConnected = false;
-            mCountReconnect++;
             Log.d(TAG, "Connection failed to acquire token: " + mName.toString());
-            if (mCountReconnect >= MAX_RECONNECT) {
+            final boolean scheduled = mManager.getReconnectScheduler()
+                    .schedule(mName, mCountReconnect++, new Runnable() {
+                        @Override
+                        public void run() {
+                            getBrowser().connect();
+                        }
+                    });
+            if (scheduled == false) {
                 if (mTestConnection) {
                     mManager.addTestedProvider(mName, false, false);
                 } else {
                     RsEventBus.post(new ProviderConnectErrorEvent(mName.toString()));
                 }
-
-            } else {
-                Log.d(TAG, "Retry provider connection, count retry: " + mCountReconnect);
-                new Handler().postDelayed(new Runnable() {
-                    @Override
-                    public void run() {
-                        getBrowser().connect();
-                    }
-                }, TIME_BEFORE_RECONNECT);
             }
         }
     }
 
     private class TestConnectionCallback extends ConnectionCallbackBase {
+        private boolean mCancelled = false;
 
         public TestConnectionCallback() {
             super(true);
         }
 
+        public void cancel() {
+            mCancelled = true;
+            mManager.getReconnectScheduler().cancel(mName);
+            releaseBrowser();
+        }
+
         @Override
         public void onConnected() {
             Log.d(TAG, "TestConnectionCallback onConnected: " + mName);
+            if (mCancelled) return;
             final MediaBrowser browser = getBrowser();
 
             MediaSession.Token token = null;
@@ -258,11 +328,12 @@ final class Provider {
             }
 
             if (token != null) {
+                mManager.getReconnectScheduler().recordSuccess(mName);
                 mCanConnect = true;
                 mConnected = true;
                 final boolean isPlaying = checkIsPlaying();
             /* possibility to make connection has been tested, disconnect */
-                getBrowser().disconnect();
+                releaseBrowser();
                 mConnected = false;
                 mManager.addTestedProvider(mName, true, isPlaying);
             } else {
@@ -284,6 +355,8 @@ final class Provider {
         @Override
         public void onConnectionFailed() {
             Log.d(TAG, "TestConnectionCallback onConnectionFailed: " + mName);
+            if (mCancelled) return;
+            mManager.getReconnectScheduler().recordFailure(mName);
             mCanConnect = false;
             mManager.addTestedProvider(mName, false, false);
         }
@@ -298,11 +371,20 @@ final class Provider {
         private final boolean mShowPlayer;
         MediaController mController;
         String mLastSubscription;
-
-        // Deezer not full children list -- workaround
-        private boolean deezerFirstSubscription = true;
-        private int deezerSubscribeCount = 0;
-        private Handler deezerHandler = null;
+        /* directory which current children were already posted */
+        String mPostedDirectory;
+        BrowsePrefetcher mPrefetcher;
+        SettlingStrategy.Settler mSettler;
+        private final Handler mSettleHandler = new Handler(Looper.getMainLooper());
+        private final Runnable mResubscribe = new Runnable() {
+            @Override
+            public void run() {
+                final MediaBrowser browser = getBrowser();
+                if (mConnected && mLastSubscription != null && browser.isConnected()) {
+                    browser.subscribe(mLastSubscription, mSubscriptionCallback);
+                }
+            }
+        };
 
         MediaBrowser.SubscriptionCallback mSubscriptionCallback
                 = new MediaBrowser.SubscriptionCallback() {
@@ -314,25 +396,23 @@ final class Provider {
                 final ProviderBrowseSuccessfulEvent event
                         = new ProviderBrowseSuccessfulEvent(getView(), parentId, views);
 
-                // Deezer not full children list -- workaround
-                if (isDeezerAndFirstSubscription() && deezerSubscribeCount <= 5 && children.size() <= 2) {
-                    if (deezerHandler == null) {
-                        deezerHandler = new Handler();
-                        deezerHandler.postDelayed(new Runnable() {
-                            @Override
-                            public void run() {
-                                deezerHandler = null;
-                                getBrowser().subscribe(mLastSubscription, mSubscriptionCallback);
-                                deezerSubscribeCount++;
-                            }
-                        }, 1000);
-                    }
-                } else {
-                    deezerFirstSubscription = false;
-                    deezerSubscribeCount = 0;
-
+                /* partial children are shown right away, later ones replace them when changed */
+                final boolean changed
+                        = mManager.getBrowseCache().put(mName, parentId, event.items);
+                if (changed || parentId.equals(mPostedDirectory) == false) {
+                    mPostedDirectory = parentId;
                     RsEventBus.post(event);
                 }
+
+                if (mSettler != null && parentId.equals(mLastSubscription)) {
+                    final long delay = mSettler.onChildrenLoaded(children.size());
+                    if (delay != SettlingStrategy.SETTLED) {
+                        mSettleHandler.removeCallbacks(mResubscribe);
+                        mSettleHandler.postDelayed(mResubscribe, delay);
+                    } else {
+                        mSettler = null;
+                    }
+                }
             }
 
             @Override
@@ -347,31 +427,19 @@ final class Provider {
             mShowPlayer = showPlayer;
         }
 
-        /**
-         * Deezer not full children list -- workaround
-         * <p>
-         * Check internet connection improve exit from workaround as soon as possible, because
-         * offline Deezer show only two children.
-         *
-         * @return
-         */
-        private boolean isDeezerAndFirstSubscription() {
-            ConnectivityManager cm = (ConnectivityManager) mManager.getContext().getSystemService(Context.CONNECTIVITY_SERVICE);
-            NetworkInfo netInfo = cm.getActiveNetworkInfo();
-            if (netInfo != null && netInfo.isConnected()) {
-                if (deezerFirstSubscription && mName.getPackageName().equals("deezer.android.app")) {
-                    return true;
-                }
-            }
-            return false;
-        }
-
         public void disconnect() {
             Log.d(TAG, "disconnect " + mName);
+            mManager.getReconnectScheduler().cancel(mName);
+            cancelPrefetch();
+            cancelSettling();
             final MediaBrowser browser = getBrowser();
             if (browser != null) {
-                getBrowser().disconnect();
+                if (mLastSubscription != null && browser.isConnected()) {
+                    browser.unsubscribe(mLastSubscription);
+                }
+                releaseBrowser();
             }
+            mLastSubscription = null;
             mMediaController.stopListening();
             mConnected = false;
             RsEventBus.unregister(this);
@@ -389,13 +457,16 @@ final class Provider {
             }
 
             if (token != null) {
+                mManager.getReconnectScheduler().recordSuccess(mName);
                 mController = new MediaController(mManager.getContext(), token);
+                mPrefetcher = new BrowsePrefetcher(mName, browser, mManager.getBrowseCache()
+                        , BrowsePrefetcher.DEFAULT_FAN_OUT, BrowsePrefetcher.DEFAULT_MAX_CONCURRENT);
+                mPrefetcher.setPaused(mPrefetchPaused);
                 mMediaController.startListening(mManager.getContext(), mController);
 
                 final String root = browser.getRoot();
-                mLastSubscription = root;
-                browser.subscribe(root, mSubscriptionCallback);
-                RsEventBus.register(this);
+                subscribe(browser, root);
+                RsEventBus.register(this, BrowseDirectoryEvent.class, mBrowseDirectoryHandler);
 
                 RsEventBus.post(new ProviderConnectedEvent(mName, mShowPlayer, false));
 
@@ -405,8 +476,15 @@ final class Provider {
             }
         }
 
-        @SuppressWarnings("unused")
-        public void onEvent(BrowseDirectoryEvent event) {
+        private final EventHandler<BrowseDirectoryEvent> mBrowseDirectoryHandler
+                = new EventHandler<BrowseDirectoryEvent>() {
+            @Override
+            public void onEvent(BrowseDirectoryEvent event) {
+                onBrowseDirectory(event);
+            }
+        };
+
+        private void onBrowseDirectory(BrowseDirectoryEvent event) {
             if (mConnected == false) return;
             if (event.providerName.equals(mName) == false) return;
 
@@ -418,16 +496,66 @@ final class Provider {
             if (directoryId == null) {
                 directoryId = browser.getRoot();
             }
+            subscribe(browser, directoryId);
+        }
+
+        /**
+         * Posts cached children right away if there are any, the subscription
+         * still runs to revalidate them.
+         */
+        private void subscribe(MediaBrowser browser, String directoryId) {
+            final List<MediaItemView> cached = mManager.getBrowseCache().get(mName, directoryId);
+            if (cached != null) {
+                mPostedDirectory = directoryId;
+                RsEventBus.post(new ProviderBrowseSuccessfulEvent(getView(), directoryId, cached));
+            } else {
+                mPostedDirectory = null;
+            }
+
+            cancelSettling();
+            final boolean isRoot = directoryId.equals(browser.getRoot());
+            mSettler = mManager.getSettlingStrategy().start(mName, directoryId, isRoot);
+
+            if (mPrefetcher != null) {
+                mPrefetcher.onSubscribed(directoryId);
+            }
             browser.subscribe(directoryId, mSubscriptionCallback);
             mLastSubscription = directoryId;
         }
 
+        public void prefetch(List<String> directoryIds) {
+            if (mPrefetcher == null) return;
+
+            final List<String> ids = new ArrayList<>(directoryIds);
+            /* currently displayed directory is already subscribed */
+            ids.remove(mLastSubscription);
+            mPrefetcher.prefetch(ids);
+        }
+
+        public void setPrefetchPaused(boolean paused) {
+            if (mPrefetcher != null) {
+                mPrefetcher.setPaused(paused);
+            }
+        }
+
+        private void cancelSettling() {
+            mSettleHandler.removeCallbacks(mResubscribe);
+            mSettler = null;
+        }
+
+        private void cancelPrefetch() {
+            if (mPrefetcher != null) {
+                mPrefetcher.cancel();
+                mPrefetcher = null;
+            }
+        }
+
         @Override
         public void onConnectionFailed() {
             Log.d(TAG, "ConnectionCallback onConnectionFailed " + mName);
             mConnected = false;
-            deezerFirstSubscription = true;
-            deezerSubscribeCount = 0;
+            cancelPrefetch();
+            cancelSettling();
             mMediaController.stopListening();
             RsEventBus.post(new DisconnectFromProviderEvent(mName));
         }
@@ -436,8 +564,8 @@ final class Provider {
         public void onConnectionSuspended() {
             Log.d(TAG, "ConnectionCallback onConnectionSuspended " + mName);
             mConnected = false;
-            deezerFirstSubscription = true;
-            deezerSubscribeCount = 0;
+            cancelPrefetch();
+            cancelSettling();
             mMediaController.stopListening();
             RsEventBus.post(new DisconnectFromProviderEvent(mName));
         }
@@ -0,0 +1,216 @@
+/*
+ * Copyright Car Connectivity Consortium
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * You may decide to give the Car Connectivity Consortium input, suggestions
+ * or feedback of a technical nature which may be implemented on the
+ * Car Connectivity Consortium products (“Feedback”).
+ *
+ * You agrees that any such Feedback is given on non-confidential
+ * basis and Licensee hereby waives any confidentiality restrictions
+ * for such Feedback. In addition, Licensee grants to the Car Connectivity Consortium
+ * and its affiliates a worldwide, non-exclusive, perpetual, irrevocable,
+ * sub-licensable, royalty-free right and license under Licensee’s copyrights to copy,
+ * reproduce, modify, create derivative works and directly or indirectly
+ * distribute, make available and communicate to public the Feedback
+ * in or in connection to any CCC products, software and/or services.
+ */
+
+package com.carconnectivity.mlmediaplayer.mediabrowser;
+
+import android.content.ComponentName;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Queue;
+
+/**
+ * Runs test connections of discovered providers with bounded concurrency.
+ * At most MAX_CONCURRENT_TEST_CONNECTIONS binds are live at once, a slot is held until
+ * the provider reports or its test connection is unbound. Provider is not waited for after
+ * TEST_CONNECTION_DEADLINE and it is unbound if it did not report within UNBIND_DEADLINE.
+ * Each round is bounded by DISCOVERY_DEADLINE: when it expires the round is reported
+ * finished, providers not tested yet are still tested through the same slots and reported
+ * when they connect. A new round takes over providers whose test was not started yet.
+ * Methods are synchronized as discovery is started from the providers thread
+ * while results are reported from the main looper.
+ */
+final class ProviderDiscovery {
+    private static final String TAG = ProviderDiscovery.class.getSimpleName();
+
+    public static final int MAX_CONCURRENT_TEST_CONNECTIONS = 4;
+    public static final long TEST_CONNECTION_DEADLINE = 2000;
+    public static final long UNBIND_DEADLINE = 10000;
+    public static final long DISCOVERY_DEADLINE = 5000;
+
+    private final Handler mHandler;
+    private final DiscoveryFinishedCallback mCallback;
+    private final Queue<Provider> mPending;
+    private final HashMap<ComponentName, TestConnection> mRunning;
+    /* providers of the current round which did not report and are still waited for */
+    private int mAwaitedCount = 0;
+    private int mProvidersCount = 0;
+    private boolean mRoundFinished = true;
+    private final Runnable mDiscoveryDeadline = new Runnable() {
+        @Override
+        public void run() {
+            onDiscoveryDeadlineMissed();
+        }
+    };
+
+    public ProviderDiscovery(DiscoveryFinishedCallback callback) {
+        if (callback == null) {
+            throw new IllegalArgumentException("Callback cannot be null.");
+        }
+
+        mHandler = new Handler(Looper.getMainLooper());
+        mCallback = callback;
+        mPending = new ArrayDeque<>();
+        mRunning = new HashMap<>();
+    }
+
+    /**
+     * Starts a round testing the given providers together with the ones not started yet.
+     * Test connections already running are not waited for by the new round.
+     */
+    public synchronized void discover(List<Provider> providers) {
+        if (providers == null) {
+            throw new IllegalArgumentException("Providers cannot be null.");
+        }
+
+        mHandler.removeCallbacks(mDiscoveryDeadline);
+        for (TestConnection test : mRunning.values()) {
+            test.awaited = false;
+        }
+        mPending.addAll(providers);
+        mProvidersCount = mPending.size();
+        mAwaitedCount = mProvidersCount;
+        mRoundFinished = false;
+        if (mAwaitedCount == 0) {
+            finishRound();
+            return;
+        }
+        mHandler.postDelayed(mDiscoveryDeadline, DISCOVERY_DEADLINE);
+        startPendingConnections();
+    }
+
+    /**
+     * Marks the provider as tested and frees its slot.
+     */
+    public synchronized void onProviderTested(ComponentName name) {
+        final TestConnection test = mRunning.remove(name);
+        if (test == null) {
+            /* already unbound or not tested by discovery */
+            return;
+        }
+        mHandler.removeCallbacks(test);
+        if (test.awaited) {
+            countDown();
+        }
+        startPendingConnections();
+    }
+
+    private synchronized void onDeadlineMissed(TestConnection test) {
+        final ComponentName name = test.provider.getName();
+        if (mRunning.get(name) != test) return;
+
+        if (test.deadlineMissed == false) {
+            Log.w(TAG, "Test connection deadline missed by provider: " + name);
+            test.deadlineMissed = true;
+            if (test.awaited) {
+                test.awaited = false;
+                countDown();
+            }
+            /* bind is still live, slot is held until it reports or is unbound */
+            mHandler.postDelayed(test, UNBIND_DEADLINE - TEST_CONNECTION_DEADLINE);
+            return;
+        }
+
+        Log.w(TAG, "Unbinding test connection of provider which did not report: " + name);
+        mRunning.remove(name);
+        test.provider.cancelTestConnection();
+        startPendingConnections();
+    }
+
+    private synchronized void onDiscoveryDeadlineMissed() {
+        if (mRoundFinished) return;
+        Log.w(TAG, "Discovery deadline missed, providers not tested yet: " + mAwaitedCount);
+
+        /* remaining providers are not waited for, their results are reported when they come */
+        for (TestConnection test : mRunning.values()) {
+            test.awaited = false;
+        }
+        mAwaitedCount = 0;
+        finishRound();
+    }
+
+    private void countDown() {
+        mAwaitedCount--;
+        if (mAwaitedCount == 0 && mRoundFinished == false) {
+            finishRound();
+        }
+    }
+
+    private void startPendingConnections() {
+        while (mRunning.size() < MAX_CONCURRENT_TEST_CONNECTIONS
+                && mPending.isEmpty() == false) {
+            startTestConnection(mPending.poll());
+        }
+    }
+
+    private void startTestConnection(final Provider provider) {
+        final ComponentName name = provider.getName();
+        final TestConnection test = new TestConnection(provider, mRoundFinished == false);
+        mRunning.put(name, test);
+        mHandler.postDelayed(test, TEST_CONNECTION_DEADLINE);
+
+        try {
+            provider.testConnection();
+        } catch (IllegalStateException e) {
+            Log.w(TAG, "Skipping test connection of already connected provider: " + name);
+            onProviderTested(name);
+        }
+    }
+
+    private void finishRound() {
+        mRoundFinished = true;
+        mHandler.removeCallbacks(mDiscoveryDeadline);
+        Log.d(TAG, "Discovery finished, providers count: " + mProvidersCount);
+        mCallback.onDiscoveryFinished(mProvidersCount);
+    }
+
+    private final class TestConnection implements Runnable {
+        final Provider provider;
+        boolean awaited;
+        boolean deadlineMissed = false;
+
+        TestConnection(Provider provider, boolean awaited) {
+            this.provider = provider;
+            this.awaited = awaited;
+        }
+
+        @Override
+        public void run() {
+            onDeadlineMissed(this);
+        }
+    }
+
+    public interface DiscoveryFinishedCallback {
+        void onDiscoveryFinished(int providersCount);
+    }
+}
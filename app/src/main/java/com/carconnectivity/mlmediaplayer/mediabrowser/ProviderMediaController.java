@@ -34,6 +34,7 @@ import android.content.Context;
 import android.graphics.Bitmap;
 import android.media.MediaMetadata;
 import android.media.session.MediaController;
+import android.media.session.MediaSession;
 import android.media.session.PlaybackState;
 import android.os.Bundle;
 import android.util.Log;
@@ -46,11 +47,14 @@ import com.carconnectivity.mlmediaplayer.mediabrowser.events.MediaExtrasChangedE
 import com.carconnectivity.mlmediaplayer.mediabrowser.events.MediaMetadataChangedEvent;
 import com.carconnectivity.mlmediaplayer.mediabrowser.events.PlayMediaItemEvent;
 import com.carconnectivity.mlmediaplayer.mediabrowser.events.PlaybackStateChangedEvent;
+import com.carconnectivity.mlmediaplayer.mediabrowser.events.QueueChangedEvent;
+import com.carconnectivity.mlmediaplayer.mediabrowser.events.SkipToQueueItemEvent;
 import com.carconnectivity.mlmediaplayer.mediabrowser.events.TerminateEvent;
 import com.carconnectivity.mlmediaplayer.mediabrowser.model.MediaButtonData;
 import com.carconnectivity.mlmediaplayer.mediabrowser.model.SlotReservation;
 import com.carconnectivity.mlmediaplayer.mediabrowser.model.TrackMetadata;
 import com.carconnectivity.mlmediaplayer.utils.RsEventBus;
+import com.carconnectivity.mlmediaplayer.utils.event.EventHandler;
 
 import java.util.HashSet;
 import java.util.List;
@@ -69,6 +73,7 @@ public final class ProviderMediaController extends MediaController.Callback {
     private Set<SlotReservation> mReservedSlots = new HashSet<>();
     private ProviderPlaybackState mCurrentPlaybackState;
     private TrackMetadata mCurrentMetadata;
+    private PlaybackQueue mCurrentQueue = PlaybackQueue.EMPTY;
     private boolean mHandleMediaButtonDataEvents = true;
     private boolean mResumePlaybackOnUnblock = false;
 
@@ -99,6 +104,10 @@ public final class ProviderMediaController extends MediaController.Callback {
         return mCurrentMetadata;
     }
 
+    public PlaybackQueue getQueue() {
+        return mCurrentQueue;
+    }
+
     public ProviderPlaybackState getPlaybackState() {
         if (mMediaController != null) {
             onPlaybackStateChanged(mMediaController.getPlaybackState());
@@ -115,6 +124,13 @@ public final class ProviderMediaController extends MediaController.Callback {
                 ;
     }
 
+    public boolean isBuffering() {
+        final int state = mCurrentPlaybackState.state;
+        return state == PlaybackState.STATE_BUFFERING
+                || state == PlaybackState.STATE_CONNECTING
+                ;
+    }
+
     public boolean isPlayingOrPreparing() {
         final int state = mCurrentPlaybackState.state;
         return isPlaying()
@@ -145,8 +161,46 @@ public final class ProviderMediaController extends MediaController.Callback {
         updateReservedSlots(mMediaController.getExtras(), false);
         onMetadataChanged(mMediaController.getMetadata());
         onPlaybackStateChanged(mMediaController.getPlaybackState());
+        onQueueChanged(mMediaController.getQueue());
         // Finally register to event bus
-        RsEventBus.registerSticky(this);
+        registerEventHandlers();
+    }
+
+    /**
+     * Registered with typed handlers, as listening starts on every connection
+     * and reflective registration would scan this class each time.
+     */
+    private void registerEventHandlers() {
+        RsEventBus.registerSticky(this, PlayMediaItemEvent.class, new EventHandler<PlayMediaItemEvent>() {
+            @Override
+            public void onEvent(PlayMediaItemEvent event) {
+                onPlayMediaItem(event);
+            }
+        });
+        RsEventBus.registerSticky(this, TerminateEvent.class, new EventHandler<TerminateEvent>() {
+            @Override
+            public void onEvent(TerminateEvent event) {
+                onTerminate(event);
+            }
+        });
+        RsEventBus.registerSticky(this, MediaButtonClickedEvent.class, new EventHandler<MediaButtonClickedEvent>() {
+            @Override
+            public void onEvent(MediaButtonClickedEvent event) {
+                onMediaButtonClicked(event);
+            }
+        });
+        RsEventBus.register(this, SkipToQueueItemEvent.class, new EventHandler<SkipToQueueItemEvent>() {
+            @Override
+            public void onEvent(SkipToQueueItemEvent event) {
+                onSkipToQueueItem(event);
+            }
+        });
+        RsEventBus.registerSticky(this, AudioBlockingEvent.class, new EventHandler<AudioBlockingEvent>() {
+            @Override
+            public void onEvent(AudioBlockingEvent event) {
+                onAudioBlocking(event);
+            }
+        });
     }
 
     public void stopListening() {
@@ -161,6 +215,7 @@ public final class ProviderMediaController extends MediaController.Callback {
 
         mCurrentMetadata = TrackMetadata.createEmpty();
         mCurrentPlaybackState = ProviderPlaybackState.createEmpty(mOwner.getView());
+        mCurrentQueue = PlaybackQueue.EMPTY;
     }
 
     @Override
@@ -195,9 +250,11 @@ public final class ProviderMediaController extends MediaController.Callback {
         }
 
         final TrackMetadata newMetadata = new TrackMetadata(title, artist, duration, artUri, artBmp);
-        if (newMetadata.sameAsOther(mCurrentMetadata) == false) {
-            RsEventBus.post(new MediaMetadataChangedEvent(view, newMetadata));
+        if (newMetadata.sameAsOther(mCurrentMetadata)) {
+            /* keep the previous instance, art loaded for its bitmap is reused */
+            return;
         }
+        RsEventBus.post(new MediaMetadataChangedEvent(view, newMetadata));
         mCurrentMetadata = newMetadata;
     }
 
@@ -232,6 +289,24 @@ public final class ProviderMediaController extends MediaController.Callback {
         final PlaybackStateChangedEvent event
                 = new PlaybackStateChangedEvent(mOwner.getView(), playback);
         RsEventBus.post(event);
+        updateQueue(mCurrentQueue.withActiveItemId(activeQueueItemId));
+    }
+
+    @Override
+    public void onQueueChanged(List<MediaSession.QueueItem> queue) {
+        updateQueue(PlaybackQueue.create(queue, mCurrentQueue.getActiveItemId()));
+    }
+
+    private void updateQueue(PlaybackQueue queue) {
+        final PlaybackQueue previous = mCurrentQueue;
+        if (queue == previous) return;
+        mCurrentQueue = queue;
+        final int[] changed = queue.findChangedRange(previous);
+        if (changed == null) return;
+
+        Log.d(TAG, "Handle queue changed: " + queue + ", changed range: " + changed[0] + "-" + changed[1]);
+        final boolean sizeChanged = queue.size() != previous.size();
+        RsEventBus.post(new QueueChangedEvent(mOwner.getView(), queue, sizeChanged, changed[0], changed[1]));
     }
 
     @Override
@@ -247,8 +322,7 @@ public final class ProviderMediaController extends MediaController.Callback {
         return otherName.equals(ownerName);
     }
 
-    @SuppressWarnings("unused")
-    public void onEvent(PlayMediaItemEvent event) {
+    private void onPlayMediaItem(PlayMediaItemEvent event) {
         Log.d(TAG, "Handle MediaButtonClickedEvent event: " + event.toString());
 
         if (isOwner(event.provider) == false) return;
@@ -259,8 +333,18 @@ public final class ProviderMediaController extends MediaController.Callback {
         }
     }
 
-    @SuppressWarnings("unused")
-    public void onEvent(TerminateEvent event) {
+    private void onSkipToQueueItem(SkipToQueueItemEvent event) {
+        Log.d(TAG, "Handle SkipToQueueItemEvent event: " + event.toString());
+
+        if (isOwner(event.provider) == false) return;
+
+        if (mMediaController != null) {
+            RsEventBus.post(new PrepareForPlaybackEvent());
+            mMediaController.getTransportControls().skipToQueueItem(event.queueId);
+        }
+    }
+
+    private void onTerminate(TerminateEvent event) {
         Log.d(TAG, "Handle TerminateEvent event: " + event.toString());
         if (isPlayingOrPreparing()) {
             forcePause();
@@ -268,8 +352,7 @@ public final class ProviderMediaController extends MediaController.Callback {
         mOwner.disconnect();
     }
 
-    @SuppressWarnings("unused")
-    public void onEvent(MediaButtonClickedEvent event) {
+    private void onMediaButtonClicked(MediaButtonClickedEvent event) {
         Log.d(TAG, "Handle MediaButtonClickedEvent event: " + event.toString());
 
         final MediaButtonData data = event.mediaButtonData;
@@ -336,8 +419,7 @@ public final class ProviderMediaController extends MediaController.Callback {
         }
     }
 
-    @SuppressWarnings("unused")
-    public void onEvent(AudioBlockingEvent event) {
+    private void onAudioBlocking(AudioBlockingEvent event) {
         if (event.isAudioBlocked) {
             startAudioBlocking();
         } else {
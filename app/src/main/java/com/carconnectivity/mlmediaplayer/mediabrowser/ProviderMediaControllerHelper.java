@@ -32,10 +32,14 @@ package com.carconnectivity.mlmediaplayer.mediabrowser;
 import android.content.Context;
 import android.content.pm.PackageManager;
 import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
 import android.media.session.PlaybackState;
+import android.os.Bundle;
 import android.util.Log;
 
+import com.carconnectivity.mlmediaplayer.commonapi.DisplayProfile;
 import com.carconnectivity.mlmediaplayer.mediabrowser.model.MediaButtonData;
 import com.carconnectivity.mlmediaplayer.mediabrowser.model.SlotReservation;
 import com.carconnectivity.mlmediaplayer.utils.ImageUtils;
@@ -43,8 +47,13 @@ import com.carconnectivity.mlmediaplayer.utils.PlaybackUtils;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -55,6 +64,7 @@ public final class ProviderMediaControllerHelper {
     private static final String TAG = ProviderMediaControllerHelper.class.getSimpleName();
 
     private static final int MAX_ACTIONS_COUNT = 10;
+    private static final int MAX_CACHED_LAYOUTS = 8;
     private static final Long[] SUPPORTED_GENERAL_ACTIONS = new Long[]{
             PlaybackState.ACTION_SKIP_TO_PREVIOUS,
             PlaybackState.ACTION_SKIP_TO_NEXT,
@@ -63,19 +73,35 @@ public final class ProviderMediaControllerHelper {
     private final String mProviderPackage;
     private final ProviderViewActive mBoundProvider;
     private final IconCache mIconCache;
+    /* playback buttons are reused, so unchanged state resolves to the identical button */
+    private final Map<MediaButtonData.Type, MediaButtonData> mPlaybackButtons;
+    private final LinkedHashMap<LayoutKey, List<MediaButtonData>> mLayouts;
     private Resources mProviderResources;
+    private int mProviderVersionCode = -1;
+    /* scale of the display the cached layouts were built for */
+    private int mLayoutsScalePercent = DisplayProfile.UNSCALED.getScalePercent();
 
     public ProviderMediaControllerHelper(Context context, ProviderViewActive provider) {
         this.mContext = context;
         this.mProviderPackage = provider.getId();
         this.mBoundProvider = provider;
-        this.mIconCache = new IconCache();
+        this.mIconCache = IconCache.getInstance(context);
+        /* custom icons are looked up on the main thread, where only the memory tier is read */
+        this.mIconCache.warm(mProviderPackage);
+        this.mPlaybackButtons = new EnumMap<>(MediaButtonData.Type.class);
+        this.mLayouts = new LinkedHashMap<LayoutKey, List<MediaButtonData>>(MAX_CACHED_LAYOUTS, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<LayoutKey, List<MediaButtonData>> eldest) {
+                return size() > MAX_CACHED_LAYOUTS;
+            }
+        };
         Log.d(TAG, "ProviderMediaControllerHelper instantiated with provider: " + mProviderPackage);
     }
 
     public void reset() {
         mProviderResources = null;
-        mIconCache.reset();
+        mProviderVersionCode = -1;
+        mLayouts.clear();
     }
 
     public MediaButtonData resolvePlaybackButton(PlaybackState playbackState) {
@@ -96,10 +122,37 @@ public final class ProviderMediaControllerHelper {
                 actionId = PlaybackState.ACTION_PLAY;
                 break;
         }
-        return actionToMediaButton(actionId);
+        final MediaButtonData.Type buttonType = MediaButtonData.Type.fromActionId(actionId);
+        MediaButtonData data = mPlaybackButtons.get(buttonType);
+        if (data == null) {
+            data = defaultMediaButton(buttonType);
+            mPlaybackButtons.put(buttonType, data);
+        }
+        return data;
     }
 
+    /**
+     * Returns the media button layout for the given state. Layouts are memoized by actions bitmask,
+     * custom actions and reserved slots, so position-only updates get back the identical
+     * immutable list and the UI can skip rebinding its buttons by comparing references.
+     */
     public List<MediaButtonData> resolveMediaButtons(Set<SlotReservation> reservedSlots, PlaybackState playbackState) {
+        final int scalePercent = DisplayProfile.getCurrent().getScalePercent();
+        if (scalePercent != mLayoutsScalePercent) {
+            /* custom icons of the cached layouts were sized for another display */
+            mLayouts.clear();
+            mLayoutsScalePercent = scalePercent;
+        }
+        final LayoutKey key = new LayoutKey(reservedSlots, playbackState);
+        List<MediaButtonData> layout = mLayouts.get(key);
+        if (layout == null) {
+            layout = Collections.unmodifiableList(buildMediaButtons(reservedSlots, playbackState));
+            mLayouts.put(key, layout);
+        }
+        return layout;
+    }
+
+    private List<MediaButtonData> buildMediaButtons(Set<SlotReservation> reservedSlots, PlaybackState playbackState) {
         List<MediaButtonData> result = new ArrayList<>();
         final Iterator<Long> generalActionsIterator = Arrays.asList(SUPPORTED_GENERAL_ACTIONS).iterator();
         final Iterator<PlaybackState.CustomAction> customActionsIterator =
@@ -200,11 +253,7 @@ public final class ProviderMediaControllerHelper {
     private MediaButtonData slotReservationToMediaButton(SlotReservation reservation) {
         switch (reservation) {
             case QUEUE:
-                final MediaButtonData.Type buttonType = MediaButtonData.Type.QUEUE;
-                return new MediaButtonData
-                        (mBoundProvider, buttonType, null
-                                , PlaybackUtils.getDefaultIconForMediaButton(mContext, buttonType), null
-                        );
+                return defaultMediaButton(MediaButtonData.Type.QUEUE);
 
             default:
                 return actionToMediaButton(reservation.getActionId());
@@ -214,31 +263,44 @@ public final class ProviderMediaControllerHelper {
     private MediaButtonData actionToMediaButton(long actionId) {
         MediaButtonData.Type buttonType = MediaButtonData.Type.fromActionId(actionId);
         if (buttonType != null) {
-            return new MediaButtonData
-                    (mBoundProvider, buttonType, null
-                            , PlaybackUtils.getDefaultIconForMediaButton(mContext, buttonType), null
-                    );
+            return defaultMediaButton(buttonType);
         }
         return null;
     }
 
+    /**
+     * Creates button with its own icon drawable, drawables must not be shared between views.
+     */
+    private MediaButtonData defaultMediaButton(MediaButtonData.Type buttonType) {
+        return new MediaButtonData
+                (mBoundProvider, buttonType, null
+                        , PlaybackUtils.getDefaultIconForMediaButton(mContext, buttonType), null
+                );
+    }
+
     private Drawable getCustomIconForMediaButton(int drawableId) {
         Log.v(TAG, "Get custom icon from provider resources with id: " + drawableId);
         try {
-            if (mProviderResources == null) {
+            if (mProviderVersionCode < 0) {
                 PackageManager packageManager = mContext.getPackageManager();
-                mProviderResources = packageManager.getResourcesForApplication(mProviderPackage);
+                mProviderVersionCode = packageManager.getPackageInfo(mProviderPackage, 0).versionCode;
             }
 
-            Drawable icon = null;
-            if (mIconCache.hasResource(drawableId)) {
-                icon = mIconCache.getResource(drawableId);
-            } else {
+            /* icons are not shown larger than the head unit displays them */
+            final DisplayProfile profile = DisplayProfile.getCurrent();
+            Bitmap icon = mIconCache.get(mProviderPackage, mProviderVersionCode, drawableId
+                    , profile.getScalePercent());
+            if (icon == null) {
+                if (mProviderResources == null) {
+                    PackageManager packageManager = mContext.getPackageManager();
+                    mProviderResources = packageManager.getResourcesForApplication(mProviderPackage);
+                }
                 final Drawable rawDrawable = mProviderResources.getDrawable(drawableId, null);
-                icon = ImageUtils.trimTransparent(rawDrawable, mProviderResources);
-                mIconCache.addResource(drawableId, icon);
+                icon = ImageUtils.trimTransparentToBitmap(rawDrawable, profile.getScale());
+                mIconCache.put(mProviderPackage, mProviderVersionCode, drawableId
+                        , profile.getScalePercent(), icon);
             }
-            return icon;
+            return new BitmapDrawable(mContext.getResources(), icon);
         } catch (Resources.NotFoundException nfe) {
             Log.e(TAG, "Drawable " + drawableId + " not found for package: " + mProviderPackage, nfe);
         } catch (PackageManager.NameNotFoundException nnfe) {
@@ -250,4 +312,81 @@ public final class ProviderMediaControllerHelper {
     private boolean containsAction(long actionId, PlaybackState state) {
         return (state.getActions() & actionId) == actionId;
     }
+
+    /**
+     * Identifies a media button layout. Custom actions are compared by action id, icon and
+     * contents of their extras, which are sent back to the provider when the button is clicked.
+     */
+    private static final class LayoutKey {
+        private final long mActions;
+        private final EnumSet<SlotReservation> mReservedSlots;
+        private final String[] mCustomActions;
+        private final int[] mCustomIcons;
+        private final Bundle[] mCustomExtras;
+        private final int mHashCode;
+
+        LayoutKey(Set<SlotReservation> reservedSlots, PlaybackState state) {
+            mActions = state.getActions();
+            mReservedSlots = EnumSet.noneOf(SlotReservation.class);
+            mReservedSlots.addAll(reservedSlots);
+            final List<PlaybackState.CustomAction> customActions = state.getCustomActions();
+            final int count = customActions != null ? customActions.size() : 0;
+            mCustomActions = new String[count];
+            mCustomIcons = new int[count];
+            mCustomExtras = new Bundle[count];
+            for (int i = 0; i < count; i++) {
+                mCustomActions[i] = customActions.get(i).getAction();
+                mCustomIcons[i] = customActions.get(i).getIcon();
+                mCustomExtras[i] = customActions.get(i).getExtras();
+            }
+            int hash = (int) (mActions ^ (mActions >>> 32));
+            hash = 31 * hash + mReservedSlots.hashCode();
+            hash = 31 * hash + Arrays.hashCode(mCustomActions);
+            hash = 31 * hash + Arrays.hashCode(mCustomIcons);
+            mHashCode = hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final LayoutKey other = (LayoutKey) o;
+            return mActions == other.mActions
+                    && mReservedSlots.equals(other.mReservedSlots)
+                    && Arrays.equals(mCustomActions, other.mCustomActions)
+                    && Arrays.equals(mCustomIcons, other.mCustomIcons)
+                    && extrasEqual(mCustomExtras, other.mCustomExtras);
+        }
+
+        /* extras are not part of the hash code, they are compared only for equal layouts */
+        private static boolean extrasEqual(Bundle[] lhs, Bundle[] rhs) {
+            for (int i = 0; i < lhs.length; i++) {
+                if (bundlesEqual(lhs[i], rhs[i]) == false) return false;
+            }
+            return true;
+        }
+
+        private static boolean bundlesEqual(Bundle lhs, Bundle rhs) {
+            if (lhs == rhs) return true;
+            if (lhs == null || rhs == null) return lhs == null ? rhs.isEmpty() : lhs.isEmpty();
+            if (lhs.size() != rhs.size()) return false;
+            for (String key : lhs.keySet()) {
+                if (rhs.containsKey(key) == false) return false;
+                final Object lhsValue = lhs.get(key);
+                final Object rhsValue = rhs.get(key);
+                if (lhsValue instanceof Bundle && rhsValue instanceof Bundle) {
+                    if (bundlesEqual((Bundle) lhsValue, (Bundle) rhsValue) == false) return false;
+                } else if (Arrays.deepEquals(new Object[]{lhsValue}, new Object[]{rhsValue}) == false) {
+                    /* deepEquals compares array values by contents */
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            return mHashCode;
+        }
+    }
 }
@@ -33,7 +33,6 @@ import android.media.session.PlaybackState;
 
 import com.carconnectivity.mlmediaplayer.mediabrowser.model.MediaButtonData;
 
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -74,7 +73,8 @@ public class ProviderPlaybackState {
      * Get current list of media buttons reflecting currently available playback actions.
      * MediaButtonData is stored in list in order in which they should be assigned in UI.
      * List is created taking into account: general action ids order, reserved slots
-     * and custom actions.
+     * and custom actions. The list is immutable and shared between states with unchanged
+     * button layout, so it can be compared by reference.
      */
     public final List<MediaButtonData> mediaButtons;
 
@@ -101,9 +101,9 @@ public class ProviderPlaybackState {
         this.playbackSpeed = playbackSpeed;
         this.activeQueueItemId = activeQueueItemId;
         this.playbackStateButton = playbackStateButton;
-        /* We need a new array, otherwise the getter will leak mutable reference to the original
-         * list, we also need unmodifiable list to prevent changing the copy owned by the event */
-        this.mediaButtons = Collections.unmodifiableList(new ArrayList<>(mediaButtons));
+        /* The list must be immutable already (see ProviderMediaControllerHelper), it is stored
+         * as is so that unchanged layouts keep the same reference across states */
+        this.mediaButtons = mediaButtons;
     }
 
     public static ProviderPlaybackState createEmpty(ProviderViewActive view) {
@@ -113,7 +113,7 @@ public class ProviderPlaybackState {
         return new ProviderPlaybackState
                 (PlaybackState.STATE_NONE, 0L, 0L, 1.0f, 0L
                         , playButtonData
-                        , new ArrayList<MediaButtonData>()
+                        , Collections.<MediaButtonData>emptyList()
                 );
     }
 
@@ -93,6 +93,10 @@ public class ProviderViewActive implements ProviderView {
         return provider.getPlaybackState();
     }
 
+    public PlaybackQueue getCurrentQueue() {
+        return provider.getQueue();
+    }
+
     public ComponentName getUniqueName() {
         return provider.getName();
     }
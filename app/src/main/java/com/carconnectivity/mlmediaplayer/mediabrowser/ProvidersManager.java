@@ -33,25 +33,31 @@ import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
 import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
 import android.content.pm.ResolveInfo;
 import android.content.pm.ServiceInfo;
+import android.content.res.Configuration;
 import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
 import android.os.Bundle;
-import android.os.Handler;
 import android.service.media.MediaBrowserService;
 import android.util.Log;
 import android.util.TypedValue;
 
 import com.carconnectivity.mlmediaplayer.R;
+import com.carconnectivity.mlmediaplayer.mediabrowser.cache.ProviderDescriptorCache;
 import com.carconnectivity.mlmediaplayer.mediabrowser.events.DisableEventsEvent;
 import com.carconnectivity.mlmediaplayer.mediabrowser.events.ProviderDiscoveredEvent;
 import com.carconnectivity.mlmediaplayer.mediabrowser.events.ProviderDiscoveryFinished;
 import com.carconnectivity.mlmediaplayer.mediabrowser.events.ProviderInactiveDiscoveredEvent;
+import com.carconnectivity.mlmediaplayer.mediabrowser.model.ProviderDescriptor;
+import com.carconnectivity.mlmediaplayer.utils.ImageUtils;
 import com.carconnectivity.mlmediaplayer.utils.RsEventBus;
 
-import java.util.Date;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -66,7 +72,6 @@ public final class ProvidersManager {
 
     public static final String TAG = ProvidersManager.class.getSimpleName();
     public static final String ML_OFFLINE_PLAYBACK = "com.mirrorlink.android.rockscout.allow-offline-access";
-    public static final int TIMER_PERIOD = 120;
     private static final String GOOGLE_PLAY_STORE_PACKAGE_NAME_OLD = "com.google.market";
     private static final String GOOGLE_PLAY_STORE_PACKAGE_NAME_NEW = "com.android.vending";
     private static final String CAR_THEME_KEY = "com.google.android.gms.car.application.theme";
@@ -76,8 +81,13 @@ public final class ProvidersManager {
     private final HashMap<ComponentName, ProviderRecord> mRecords;
     private final HashMap<ComponentName, Boolean> mConnectedProviders;
     private final ProvidersToDownloadManager mProvidersToDownloadManager;
-    private HashMap<ComponentName, ProviderDiscoveryData> mProvidersTestStatus;
-    private Handler mDiscoveryCompletedCheckHandler;
+    private final ProviderDescriptorCache mDescriptorCache;
+    private final BrowserConnectionPool mConnectionPool;
+    private final ReconnectScheduler mReconnectScheduler;
+    private final BrowseCache mBrowseCache;
+    private final SettlingStrategy mSettlingStrategy;
+    private Map<ComponentName, ProviderDescriptor> mDescriptors;
+    private volatile ProviderDiscovery mDiscovery;
     private Set<ComponentName> mMediaBrowserPackages;
     private boolean mPlayerModeOnline = false;
 
@@ -88,6 +98,11 @@ public final class ProvidersManager {
         mConnectedProviders = new HashMap<>();
         mMediaBrowserPackages = new HashSet<>();
         mProvidersToDownloadManager = new ProvidersToDownloadManager(context, mMediaBrowserPackages);
+        mDescriptorCache = new ProviderDescriptorCache(context);
+        mConnectionPool = new BrowserConnectionPool(context);
+        mReconnectScheduler = new ReconnectScheduler(context);
+        mBrowseCache = new BrowseCache();
+        mSettlingStrategy = new AdaptiveSettlingStrategy(context);
         RsEventBus.register(this);
     }
 
@@ -97,32 +112,38 @@ public final class ProvidersManager {
 
     @SuppressWarnings("unused")
     public void onEvent(DisableEventsEvent event) {
+        mConnectionPool.evictAll();
         RsEventBus.unregister(this);
     }
 
-    private void checkIfTestConnectionsCompleted() {
-        if (mProvidersTestStatus == null) return;
+    BrowserConnectionPool getConnectionPool() {
+        return mConnectionPool;
+    }
 
-        for (HashMap.Entry<ComponentName, ProviderDiscoveryData> entry
-                : mProvidersTestStatus.entrySet()) {
-            final ProviderDiscoveryData value = entry.getValue();
-            if (value.discoveryFinished == false) {
-                final Date now = new Date();
-                final long seconds = (now.getTime() - value.creationTime.getTime()) / 1000;
-                /* treat this as undiscovered only if discovery started less than 5 seconds ago */
-                if (seconds < 5) {
-                    return;
-                }
-            }
-        }
-        final ProviderDiscoveryFinished finishedEvent
-                = new ProviderDiscoveryFinished(mProvidersTestStatus.size());
-        RsEventBus.post(finishedEvent);
-        mProvidersTestStatus = null;
+    ReconnectScheduler getReconnectScheduler() {
+        return mReconnectScheduler;
+    }
+
+    BrowseCache getBrowseCache() {
+        return mBrowseCache;
+    }
 
-        if (mDiscoveryCompletedCheckHandler != null) {
-            mDiscoveryCompletedCheckHandler = null;
+    SettlingStrategy getSettlingStrategy() {
+        return mSettlingStrategy;
+    }
+
+    private void startDiscovery(List<Provider> newProviders) {
+        if (mDiscovery == null) {
+            mDiscovery = new ProviderDiscovery(new ProviderDiscovery.DiscoveryFinishedCallback() {
+                @Override
+                public void onDiscoveryFinished(int providersCount) {
+                    RsEventBus.post(new ProviderDiscoveryFinished(providersCount));
+                }
+            });
         }
+        /* already started test connections still report discovered providers,
+         * the ones which were not started yet are moved to the new round */
+        mDiscovery.discover(newProviders);
     }
 
     private List<ResolveInfo> getMediaBrowserPackages() {
@@ -133,15 +154,8 @@ public final class ProvidersManager {
         return resolveInfos;
     }
 
-    private boolean checkIfCanPlayOffline(ResolveInfo packageInfo) {
-        ApplicationInfo appInfo;
-        try {
-            appInfo = mManager.getApplicationInfo(packageInfo.serviceInfo.packageName, PackageManager.GET_META_DATA);
-        } catch (PackageManager.NameNotFoundException e) {
-            Log.e(TAG, "Something went wrong: ", e);
-            return false;
-        }
-        if (appInfo.metaData != null) {
+    private boolean checkIfCanPlayOffline(ApplicationInfo appInfo) {
+        if (appInfo != null && appInfo.metaData != null) {
             return appInfo.metaData.getBoolean(ML_OFFLINE_PLAYBACK, false);
         } else {
             return false;
@@ -149,45 +163,27 @@ public final class ProvidersManager {
     }
 
     private Provider addNewProvider(ResolveInfo packageInfo) {
-        final boolean canPlayOffline = checkIfCanPlayOffline(packageInfo);
-        final Provider provider = new Provider(this, packageInfo, canPlayOffline);
-        final ProviderViewActive view = createView(provider, packageInfo);
-        final ComponentName name = provider.getName();
+        final ProviderDescriptor descriptor = resolveDescriptor(packageInfo);
+        final Provider provider = new Provider(this, packageInfo, descriptor.canPlayOffline);
+        final ProviderViewActive view = createView(provider, descriptor);
 
-        provider.testConnection();
-        mProvidersTestStatus.put(name, new ProviderDiscoveryData(false));
         mRecords.put(provider.getName(), new ProviderRecord(provider, view));
         return provider;
     }
 
-    private void startDiscoveryFinishedCheck() {
-        if (mDiscoveryCompletedCheckHandler != null) {
-            return;
-        }
-
-        mDiscoveryCompletedCheckHandler = new Handler();
-        mDiscoveryCompletedCheckHandler.postDelayed(new Runnable() {
-            @Override
-            public void run() {
-                checkIfTestConnectionsCompleted();
-
-                if (mDiscoveryCompletedCheckHandler != null) {
-                    mDiscoveryCompletedCheckHandler.postDelayed(this, TIMER_PERIOD);
-                }
-            }
-        }, TIMER_PERIOD);
-    }
-
     public void findProviders() {
         mRecords.clear();
         mConnectedProviders.clear();
-        mProvidersTestStatus = new HashMap<>();
+        mDescriptors = mDescriptorCache.getCachedDescriptors();
         final List<ResolveInfo> packages = getMediaBrowserPackages();
+        final List<Provider> providers = new ArrayList<>();
         for (ResolveInfo packageInfo : packages) {
             final Provider provider = addNewProvider(packageInfo);
+            providers.add(provider);
             Log.d(TAG, "Added provider : " + provider.getName().toString());
         }
-        startDiscoveryFinishedCheck();
+        startDiscovery(providers);
+        mDescriptorCache.retainOnly(mMediaBrowserPackages);
     }
 
     private ComponentName namePackage(ResolveInfo packageInfo) {
@@ -204,46 +200,89 @@ public final class ProvidersManager {
         return names;
     }
 
-    private void removeObsoleteProviders(List<ResolveInfo> currentPackages) {
+    private List<ResolveInfo> getMediaBrowserPackages(String packageName) {
+        final Intent intent = new Intent(MediaBrowserService.SERVICE_INTERFACE);
+        intent.setPackage(packageName);
+        return mManager.queryIntentServices(intent, 0);
+    }
+
+    private boolean removeObsoleteProviders(String packageName, Set<ComponentName> currentNames) {
         boolean removed = false;
-        Set<ComponentName> currentNames = getNames(currentPackages);
 
         for (Iterator<Map.Entry<ComponentName, ProviderRecord>> it = mRecords.entrySet().iterator(); it.hasNext(); ) {
             ComponentName name = it.next().getKey();
-            if (currentNames.contains(name) == false) {
+            if (name.getPackageName().equals(packageName) && currentNames.contains(name) == false) {
                 it.remove();
                 mConnectedProviders.remove(name);
+                mMediaBrowserPackages.remove(name);
+                mDescriptors.remove(name);
+                mConnectionPool.evict(name);
+                mBrowseCache.invalidate(name);
                 removed = true;
             }
         }
 
         if (removed) {
-            final ProviderDiscoveryFinished finishedEvent
-                    = new ProviderDiscoveryFinished(mRecords.size());
-            RsEventBus.postSticky(finishedEvent);
+            mDescriptorCache.retainOnly(mMediaBrowserPackages);
         }
+        return removed;
     }
 
-    private int addNewProviders(List<ResolveInfo> packages) {
-        int added = 0;
+    private boolean updateChangedProviders(List<ResolveInfo> packages) {
+        boolean updated = false;
+        for (ResolveInfo packageInfo : packages) {
+            final ComponentName name = namePackage(packageInfo);
+            final ProviderRecord record = mRecords.get(name);
+            if (record == null) continue;
+
+            final ProviderDescriptor previous = mDescriptors.get(name);
+            final ProviderDescriptor descriptor = resolveDescriptor(packageInfo);
+            if (descriptor != previous) {
+                /* package was updated, its directories may have changed too */
+                mBrowseCache.invalidate(name);
+                final ProviderViewActive view = createView(record.provider, descriptor);
+                mRecords.put(name, new ProviderRecord(record.provider, view));
+                updated = true;
+            }
+        }
+        return updated;
+    }
+
+    private List<Provider> addNewProviders(List<ResolveInfo> packages) {
+        List<Provider> added = new ArrayList<>();
         Set<ComponentName> oldNames = mRecords.keySet();
         for (ResolveInfo packageInfo : packages) {
             final ComponentName name = namePackage(packageInfo);
             if (oldNames.contains(name) == false) {
-                addNewProvider(packageInfo);
-                added += 1;
+                added.add(addNewProvider(packageInfo));
             }
         }
         return added;
     }
 
-    public void refreshProviders() {
-        mProvidersTestStatus = new HashMap<>();
-        final List<ResolveInfo> packages = getMediaBrowserPackages();
-        removeObsoleteProviders(packages);
-        final int addedCount = addNewProviders(packages);
-        if (addedCount > 0) {
-            startDiscoveryFinishedCheck();
+    /**
+     * Updates providers of the single package after it was installed, removed or changed,
+     * instead of querying services of all installed packages.
+     */
+    public void refreshPackage(String packageName) {
+        if (mDiscovery == null) {
+            /* providers were not searched yet, the package will be found by the first discovery */
+            return;
+        }
+
+        final List<ResolveInfo> packages = getMediaBrowserPackages(packageName);
+        final Set<ComponentName> currentNames = getNames(packages);
+        mMediaBrowserPackages.addAll(currentNames);
+
+        final boolean removed = removeObsoleteProviders(packageName, currentNames);
+        final boolean updated = updateChangedProviders(packages);
+        final List<Provider> added = addNewProviders(packages);
+        if (added.size() > 0) {
+            startDiscovery(added);
+        } else if (removed || updated) {
+            final ProviderDiscoveryFinished finishedEvent
+                    = new ProviderDiscoveryFinished(mRecords.size());
+            RsEventBus.post(finishedEvent);
         }
     }
 
@@ -265,17 +304,64 @@ public final class ProvidersManager {
         return getProviderRecord(name).provider;
     }
 
-    private ProviderViewActive createView(Provider provider, ResolveInfo packageInfo) {
+    private ProviderViewActive createView(Provider provider, ProviderDescriptor descriptor) {
+        final Resources resources = mContext.getResources();
+        final Drawable icon
+                = descriptor.icon != null ? new BitmapDrawable(resources, descriptor.icon) : null;
+        final Drawable notificationDrawable
+                = descriptor.notificationIcon != null
+                ? new BitmapDrawable(resources, descriptor.notificationIcon)
+                : null;
+        return new ProviderViewActive(provider, descriptor.label, descriptor.name.getPackageName()
+                , icon, descriptor.colorPrimaryDark, descriptor.colorAccent, notificationDrawable);
+    }
+
+    /**
+     * Returns descriptor from the cache if it was created for the currently installed
+     * version of the package, otherwise creates new one and stores it in the cache.
+     */
+    private ProviderDescriptor resolveDescriptor(ResolveInfo packageInfo) {
+        if (mDescriptors == null) {
+            mDescriptors = mDescriptorCache.getCachedDescriptors();
+        }
+
+        final ComponentName componentName = namePackage(packageInfo);
+        PackageInfo installedPackage = null;
+        try {
+            installedPackage = mManager.getPackageInfo(componentName.getPackageName(), 0);
+        } catch (PackageManager.NameNotFoundException e) {
+            Log.e(TAG, "Package info not found for service: " + componentName, e);
+        }
+
+        final Configuration configuration = mContext.getResources().getConfiguration();
+        final ProviderDescriptor cached = mDescriptors.get(componentName);
+        if (cached != null && installedPackage != null
+                && cached.isValidFor(installedPackage.versionCode, installedPackage.lastUpdateTime
+                , configuration.locale.toString(), configuration.densityDpi)) {
+            return cached;
+        }
+
+        final ProviderDescriptor descriptor = createDescriptor(packageInfo, installedPackage);
+        if (installedPackage != null) {
+            mDescriptors.put(componentName, descriptor);
+            mDescriptorCache.put(descriptor);
+        }
+        return descriptor;
+    }
+
+    private ProviderDescriptor createDescriptor(ResolveInfo packageInfo, PackageInfo installedPackage) {
         final String label = packageInfo.loadLabel(mManager).toString();
-        final Drawable icon = packageInfo.loadIcon(mManager);
-        Integer colorPrimaryDark = null;
-        Integer colorAccent = null;
-        Drawable notificationDrawable = null;
-        String name = "";
+        final Bitmap icon = ImageUtils.drawableToBitmap(packageInfo.loadIcon(mManager));
+        final int defaultColor = mContext.getResources().getColor(R.color.provider_default_theme_color);
+        int colorPrimaryDark = defaultColor;
+        int colorAccent = defaultColor;
+        boolean canPlayOffline = false;
+        Bitmap notificationIcon = null;
         try {
-            name = packageInfo.serviceInfo.packageName;
+            final String name = packageInfo.serviceInfo.packageName;
             ApplicationInfo appInfo
                     = mManager.getApplicationInfo(name, PackageManager.GET_META_DATA);
+            canPlayOffline = checkIfCanPlayOffline(appInfo);
             Resources resources = mManager.getResourcesForApplication(name);
             Resources.Theme theme = resources.newTheme();
             int themeId = resolveAndroidAutoThemeId(appInfo);
@@ -286,13 +372,20 @@ public final class ProvidersManager {
             colorAccent = resolveThemeColor(android.R.attr.colorAccent, theme);
             int notificationDrawableId = resolveAndroidAutoNotificationIcon(appInfo);
             if (notificationDrawableId > 0) {
-                notificationDrawable = resources.getDrawable(notificationDrawableId, theme);
+                notificationIcon = ImageUtils.drawableToBitmap
+                        (resources.getDrawable(notificationDrawableId, theme));
             }
 
         } catch (PackageManager.NameNotFoundException e) {
             Log.e(TAG, "Error reading app theme data for service: " + packageInfo.serviceInfo.packageName, e);
         }
-        return new ProviderViewActive(provider, label, name, icon, colorPrimaryDark, colorAccent, notificationDrawable);
+
+        final int versionCode = installedPackage != null ? installedPackage.versionCode : 0;
+        final long lastUpdateTime = installedPackage != null ? installedPackage.lastUpdateTime : 0L;
+        final Configuration configuration = mContext.getResources().getConfiguration();
+        return new ProviderDescriptor(namePackage(packageInfo), versionCode, lastUpdateTime
+                , configuration.locale.toString(), configuration.densityDpi
+                , label, icon, colorPrimaryDark, colorAccent, canPlayOffline, notificationIcon);
     }
 
     private int resolveAndroidAutoThemeId(ApplicationInfo appInfo) {
@@ -315,7 +408,7 @@ public final class ProvidersManager {
         return metaData.getInt(CAR_NOTIFICATION_SMALL_ICON);
     }
 
-    private Integer resolveThemeColor(int colorId, Resources.Theme theme) {
+    private int resolveThemeColor(int colorId, Resources.Theme theme) {
         final TypedValue value = new TypedValue();
         boolean result = theme.resolveAttribute(colorId, value, true);
         if (result) {
@@ -333,9 +426,12 @@ public final class ProvidersManager {
         if (connected) {
             mConnectedProviders.put(componentName, isPlaying);
             notifyAboutNewProvider(componentName, isPlaying);
+            /* custom action icons are ready in memory before the provider is opened */
+            IconCache.getInstance(mContext).warm(componentName.getPackageName());
+        }
+        if (mDiscovery != null) {
+            mDiscovery.onProviderTested(componentName);
         }
-        if (mProvidersTestStatus == null) return;
-        mProvidersTestStatus.put(componentName, new ProviderDiscoveryData(true));
     }
 
     public void changeModePlayer(boolean playerModeOnline) {
@@ -392,14 +488,4 @@ public final class ProvidersManager {
             this.immutableView = immutableView;
         }
     }
-
-    private class ProviderDiscoveryData {
-        final public boolean discoveryFinished;
-        final public Date creationTime;
-
-        ProviderDiscoveryData(boolean done) {
-            discoveryFinished = done;
-            creationTime = new Date();
-        }
-    }
 }
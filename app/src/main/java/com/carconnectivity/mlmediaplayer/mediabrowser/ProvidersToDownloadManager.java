@@ -31,11 +31,13 @@ package com.carconnectivity.mlmediaplayer.mediabrowser;
 
 import android.content.ComponentName;
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
 import com.carconnectivity.mlmediaplayer.mediabrowser.cache.ProvidersToDownloadCache;
 import com.carconnectivity.mlmediaplayer.mediabrowser.events.ProviderToDownloadDiscoveredEvent;
-import com.carconnectivity.mlmediaplayer.mediabrowser.retrofit.ProvidersToDownloadService;
+import com.carconnectivity.mlmediaplayer.mediabrowser.retrofit.ProvidersCatalogueClient;
 import com.carconnectivity.mlmediaplayer.mediabrowser.retrofit.model.ProviderToDownloadModel;
 import com.carconnectivity.mlmediaplayer.mediabrowser.retrofit.model.ProvidersToDownloadModel;
 import com.carconnectivity.mlmediaplayer.utils.RsEventBus;
@@ -45,12 +47,9 @@ import java.net.URL;
 import java.util.List;
 import java.util.Set;
 
-import okhttp3.OkHttpClient;
 import retrofit2.Call;
 import retrofit2.Callback;
 import retrofit2.Response;
-import retrofit2.Retrofit;
-import retrofit2.converter.simplexml.SimpleXmlConverterFactory;
 
 /**
  * Created by sebastian.sokolowski on 17.02.16.
@@ -58,48 +57,69 @@ import retrofit2.converter.simplexml.SimpleXmlConverterFactory;
 public class ProvidersToDownloadManager {
     private static final String TAG = ProvidersToDownloadManager.class.getSimpleName();
 
-    private static final String URL = "https://www.mirrorlink.com/";
-
     private final ProvidersToDownloadCache providersFromServerCache;
+    private final ProvidersCatalogueClient catalogueClient;
     private final Set<ComponentName> mediaBrowserPackages;
+    /* refreshes run on the main thread, where Retrofit delivers their callbacks */
+    private final Handler mainHandler;
+    /* refresh in flight, mode toggles on the head unit must not start another one,
+     * accessed on the main thread only */
+    private Call<ProvidersToDownloadModel> pendingRefresh;
+    /* set when providers from the database cache were already announced */
+    private volatile boolean cachedProvidersNotified = false;
 
     public ProvidersToDownloadManager(Context context, Set<ComponentName> mediaBrowserPackages) {
         this.mediaBrowserPackages = mediaBrowserPackages;
         providersFromServerCache = new ProvidersToDownloadCache(context);
+        catalogueClient = ProvidersCatalogueClient.getInstance(context);
+        mainHandler = new Handler(Looper.getMainLooper());
     }
 
     public void getCachedProviders() {
         List<ProviderToDownloadModel> providerFromServers = providersFromServerCache.getCachedProviders();
-        if (providerFromServers != null && providerFromServers.size() > 0) {
+        cachedProvidersNotified = providerFromServers != null && providerFromServers.size() > 0;
+        if (cachedProvidersNotified) {
             notifyAboutProviders(providerFromServers);
         }
     }
 
     public void refreshProviders() {
-        Retrofit retrofit = new Retrofit.Builder()
-                .baseUrl(URL)
-                .client(new OkHttpClient())
-                .addConverterFactory(SimpleXmlConverterFactory.create())
-                .build();
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                startRefresh();
+            }
+        });
+    }
 
-        ProvidersToDownloadService apiService = retrofit.create(ProvidersToDownloadService.class);
+    private void startRefresh() {
+        if (pendingRefresh != null) {
+            Log.d(TAG, "refreshProviders: refresh already in progress");
+            return;
+        }
 
-        Call<ProvidersToDownloadModel> response = apiService.getProviders();
-        response.enqueue(new Callback<ProvidersToDownloadModel>() {
+        pendingRefresh = catalogueClient.newCall();
+        pendingRefresh.enqueue(new Callback<ProvidersToDownloadModel>() {
             @Override
             public void onResponse(Call<ProvidersToDownloadModel> call, Response<ProvidersToDownloadModel> response) {
+                pendingRefresh = null;
+                if (ProvidersCatalogueClient.isNotModified(response) && cachedProvidersNotified) {
+                    Log.d(TAG, "refreshProviders: catalogue not modified");
+                    return;
+                }
                 if (validateProviderResponse(response)) {
                     List<ProviderToDownloadModel> providerToDownloadModels = response.body().getProviderToDownloadModelList();
 
-                    providersFromServerCache.deleteAllRows();
-                    providersFromServerCache.insert(providerToDownloadModels);
-
-                    notifyAboutProviders(providerToDownloadModels);
+                    final boolean changed = providersFromServerCache.update(providerToDownloadModels);
+                    if (changed || cachedProvidersNotified == false) {
+                        notifyAboutProviders(providerToDownloadModels);
+                    }
                 }
             }
 
             @Override
             public void onFailure(Call<ProvidersToDownloadModel> call, Throwable t) {
+                pendingRefresh = null;
                 Log.d(TAG, t.toString());
             }
         });
@@ -0,0 +1,206 @@
+/*
+ * Copyright Car Connectivity Consortium
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * You may decide to give the Car Connectivity Consortium input, suggestions
+ * or feedback of a technical nature which may be implemented on the
+ * Car Connectivity Consortium products (“Feedback”).
+ *
+ * You agrees that any such Feedback is given on non-confidential
+ * basis and Licensee hereby waives any confidentiality restrictions
+ * for such Feedback. In addition, Licensee grants to the Car Connectivity Consortium
+ * and its affiliates a worldwide, non-exclusive, perpetual, irrevocable,
+ * sub-licensable, royalty-free right and license under Licensee’s copyrights to copy,
+ * reproduce, modify, create derivative works and directly or indirectly
+ * distribute, make available and communicate to public the Feedback
+ * in or in connection to any CCC products, software and/or services.
+ */
+
+package com.carconnectivity.mlmediaplayer.mediabrowser;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * Schedules reconnection attempts of all providers on a single main looper timer.
+ * Delay between attempts grows exponentially with random jitter. Providers failing
+ * FAILURE_THRESHOLD times in a row are parked for PARK_PERIOD: their test connections
+ * are skipped until the period expires and automatic retries are not scheduled. Failures are persisted,
+ * so a provider which service is dead stays parked across sessions.
+ */
+final class ReconnectScheduler {
+    private static final String TAG = ReconnectScheduler.class.getSimpleName();
+    private static final String PREFERENCES_NAME = "reconnectScheduler";
+    private static final String KEY_FAILURES = "failures:";
+    private static final String KEY_PARKED_UNTIL = "parkedUntil:";
+
+    public static final int MAX_ATTEMPTS = 7;
+    public static final long BASE_DELAY = 250;
+    public static final long MAX_DELAY = 8000;
+    public static final int FAILURE_THRESHOLD = 3;
+    public static final long PARK_PERIOD = 10 * 60 * 1000;
+
+    private final SharedPreferences mPreferences;
+    private final Handler mHandler;
+    private final Random mRandom;
+    private final PriorityQueue<ScheduledAttempt> mAttempts;
+    private final Runnable mTimer = new Runnable() {
+        @Override
+        public void run() {
+            runDueAttempts();
+        }
+    };
+
+    public ReconnectScheduler(Context context) {
+        if (context == null) {
+            throw new IllegalArgumentException("Context cannot be null.");
+        }
+
+        mPreferences = context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+        mHandler = new Handler(Looper.getMainLooper());
+        mRandom = new Random();
+        mAttempts = new PriorityQueue<>();
+    }
+
+    /**
+     * Schedules next attempt of reconnection.
+     *
+     * @param attempt number of already made attempts, starting from 0
+     * @return false when attempts are exhausted or provider is parked,
+     * retry is not scheduled then and the failure is recorded
+     */
+    public boolean schedule(ComponentName name, int attempt, Runnable retry) {
+        cancel(name);
+        if (attempt >= MAX_ATTEMPTS || isParked(name)) {
+            recordFailure(name);
+            return false;
+        }
+
+        final long delay = calculateDelay(attempt);
+        Log.d(TAG, "Retry connection to " + name + " in " + delay + " ms, attempt: " + attempt);
+        mAttempts.add(new ScheduledAttempt(name, SystemClock.uptimeMillis() + delay, retry));
+        rescheduleTimer();
+        return true;
+    }
+
+    /**
+     * Schedules probing a parked provider right after its park period expires,
+     * so it shows up again without waiting for the next discovery.
+     */
+    public void scheduleAfterPark(ComponentName name, Runnable probe) {
+        cancel(name);
+        final long parkedFor = getParkedUntil(name) - System.currentTimeMillis();
+        if (parkedFor <= 0) return;
+
+        Log.d(TAG, "Probe parked provider " + name + " in " + parkedFor + " ms");
+        mAttempts.add(new ScheduledAttempt(name, SystemClock.uptimeMillis() + parkedFor, probe));
+        rescheduleTimer();
+    }
+
+    public void cancel(ComponentName name) {
+        boolean removed = false;
+        for (Iterator<ScheduledAttempt> it = mAttempts.iterator(); it.hasNext(); ) {
+            if (it.next().name.equals(name)) {
+                it.remove();
+                removed = true;
+            }
+        }
+        if (removed) {
+            rescheduleTimer();
+        }
+    }
+
+    public boolean isParked(ComponentName name) {
+        return getParkedUntil(name) > System.currentTimeMillis();
+    }
+
+    private long getParkedUntil(ComponentName name) {
+        return mPreferences.getLong(KEY_PARKED_UNTIL + name.flattenToString(), 0);
+    }
+
+    public void recordSuccess(ComponentName name) {
+        final String key = name.flattenToString();
+        if (mPreferences.contains(KEY_FAILURES + key) == false) return;
+
+        mPreferences.edit()
+                .remove(KEY_FAILURES + key)
+                .remove(KEY_PARKED_UNTIL + key)
+                .apply();
+    }
+
+    public void recordFailure(ComponentName name) {
+        final String key = name.flattenToString();
+        final int failures = mPreferences.getInt(KEY_FAILURES + key, 0) + 1;
+        final SharedPreferences.Editor editor = mPreferences.edit();
+        if (failures >= FAILURE_THRESHOLD) {
+            Log.w(TAG, "Parking provider after " + failures + " failures: " + name);
+            editor.putLong(KEY_PARKED_UNTIL + key, System.currentTimeMillis() + PARK_PERIOD);
+            /* after parking provider gets whole threshold again */
+            editor.remove(KEY_FAILURES + key);
+        } else {
+            editor.putInt(KEY_FAILURES + key, failures);
+        }
+        editor.apply();
+    }
+
+    private long calculateDelay(int attempt) {
+        final long delay = Math.min(MAX_DELAY, BASE_DELAY << attempt);
+        /* equal jitter: half of the delay is fixed, the other half is random */
+        final long half = delay / 2;
+        return half + (long) (mRandom.nextDouble() * half);
+    }
+
+    private void runDueAttempts() {
+        final long now = SystemClock.uptimeMillis();
+        while (mAttempts.isEmpty() == false && mAttempts.peek().time <= now) {
+            final ScheduledAttempt attempt = mAttempts.poll();
+            attempt.retry.run();
+        }
+        rescheduleTimer();
+    }
+
+    private void rescheduleTimer() {
+        mHandler.removeCallbacks(mTimer);
+        final ScheduledAttempt next = mAttempts.peek();
+        if (next != null) {
+            mHandler.postAtTime(mTimer, next.time);
+        }
+    }
+
+    private static final class ScheduledAttempt implements Comparable<ScheduledAttempt> {
+        final ComponentName name;
+        final long time;
+        final Runnable retry;
+
+        ScheduledAttempt(ComponentName name, long time, Runnable retry) {
+            this.name = name;
+            this.time = time;
+            this.retry = retry;
+        }
+
+        @Override
+        public int compareTo(ScheduledAttempt other) {
+            return time < other.time ? -1 : (time == other.time ? 0 : 1);
+        }
+    }
+}
@@ -42,6 +42,7 @@ import com.carconnectivity.mlmediaplayer.mediabrowser.events.DisconnectFromProvi
 import com.carconnectivity.mlmediaplayer.mediabrowser.events.NowPlayingProviderChangedEvent;
 import com.carconnectivity.mlmediaplayer.mediabrowser.events.PlayMediaItemEvent;
 import com.carconnectivity.mlmediaplayer.mediabrowser.events.PlaybackStateChangedEvent;
+import com.carconnectivity.mlmediaplayer.mediabrowser.events.PrefetchDirectoriesEvent;
 import com.carconnectivity.mlmediaplayer.mediabrowser.events.ProviderBrowseCancelEvent;
 import com.carconnectivity.mlmediaplayer.mediabrowser.events.ProviderConnectedEvent;
 import com.carconnectivity.mlmediaplayer.mediabrowser.events.ProviderDiscoveredEvent;
@@ -76,9 +77,9 @@ public class SessionManager {
         mManger.findProviders();
     }
 
-    public void refreshProviders() {
-        Log.d(TAG, "refreshProviders");
-        mManger.refreshProviders();
+    public void refreshPackage(String packageName) {
+        Log.d(TAG, "refreshPackage: packageName=" + packageName);
+        mManger.refreshPackage(packageName);
     }
 
     public boolean isPlayingProvider(ComponentName name) {
@@ -120,6 +121,13 @@ public class SessionManager {
         }
     }
 
+    @SuppressWarnings("unused")
+    public void onEvent(PrefetchDirectoriesEvent event) {
+        if (mBrowsedProvider == null || !mBrowsedProvider.isNameEqual(event.providerName)) return;
+
+        mBrowsedProvider.prefetch(event.directoryIds);
+    }
+
     @SuppressWarnings("unused")
     public void onEvent(DisconnectFromProviderEvent event) {
         disconnectProvider(event.mName);
@@ -136,6 +144,13 @@ public class SessionManager {
                 mPlayingProvider != null && mPlayingProvider.isNameEqual(event.provider.getUniqueName())) {
             RsEventBus.post(new AudioContextChangedEvent(event.state));
         }
+        updatePrefetchPaused();
+    }
+
+    private void updatePrefetchPaused() {
+        if (mBrowsedProvider == null) return;
+        /* do not compete for bandwidth with the provider which is buffering */
+        mBrowsedProvider.setPrefetchPaused(mPlayingProvider != null && mPlayingProvider.isBuffering());
     }
 
     private void changePlayingProvider(ComponentName providerName) {
@@ -169,6 +184,7 @@ public class SessionManager {
         if (mPlayingProvider == null) {
             changePlayingProvider(providerName);
         }
+        updatePrefetchPaused();
     }
 
     private void disconnectBrowsedProvider(boolean unconditionalDisconnect) {
@@ -0,0 +1,59 @@
+/*
+ * Copyright Car Connectivity Consortium
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * You may decide to give the Car Connectivity Consortium input, suggestions
+ * or feedback of a technical nature which may be implemented on the
+ * Car Connectivity Consortium products (“Feedback”).
+ *
+ * You agrees that any such Feedback is given on non-confidential
+ * basis and Licensee hereby waives any confidentiality restrictions
+ * for such Feedback. In addition, Licensee grants to the Car Connectivity Consortium
+ * and its affiliates a worldwide, non-exclusive, perpetual, irrevocable,
+ * sub-licensable, royalty-free right and license under Licensee’s copyrights to copy,
+ * reproduce, modify, create derivative works and directly or indirectly
+ * distribute, make available and communicate to public the Feedback
+ * in or in connection to any CCC products, software and/or services.
+ */
+
+package com.carconnectivity.mlmediaplayer.mediabrowser;
+
+import android.content.ComponentName;
+
+/**
+ * Decides whether children loaded for a subscription are complete. Some providers
+ * return partial directories right after connecting and fill them later without
+ * notifying, such directories have to be subscribed again after a while.
+ */
+interface SettlingStrategy {
+    long SETTLED = -1;
+
+    /**
+     * Starts tracking a new subscription.
+     *
+     * @param isRoot true if the subscribed directory is the root of the provider
+     */
+    Settler start(ComponentName name, String parentId, boolean isRoot);
+
+    interface Settler {
+        /**
+         * Called for each children list loaded for the subscription, children are displayed
+         * immediately regardless of the returned value.
+         *
+         * @return delay in ms after which directory should be subscribed again,
+         * or SETTLED when no further subscription is needed
+         */
+        long onChildrenLoaded(int childrenCount);
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright Car Connectivity Consortium
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * You may decide to give the Car Connectivity Consortium input, suggestions
+ * or feedback of a technical nature which may be implemented on the
+ * Car Connectivity Consortium products (“Feedback”).
+ *
+ * You agrees that any such Feedback is given on non-confidential
+ * basis and Licensee hereby waives any confidentiality restrictions
+ * for such Feedback. In addition, Licensee grants to the Car Connectivity Consortium
+ * and its affiliates a worldwide, non-exclusive, perpetual, irrevocable,
+ * sub-licensable, royalty-free right and license under Licensee’s copyrights to copy,
+ * reproduce, modify, create derivative works and directly or indirectly
+ * distribute, make available and communicate to public the Feedback
+ * in or in connection to any CCC products, software and/or services.
+ */
+
+package com.carconnectivity.mlmediaplayer.mediabrowser.cache;
+
+import android.content.ComponentName;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.provider.BaseColumns;
+
+import com.carconnectivity.mlmediaplayer.mediabrowser.model.ProviderDescriptor;
+
+import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static com.carconnectivity.mlmediaplayer.mediabrowser.cache.ProviderDescriptorCache.DescriptorReaderContract.DescriptorEntry.TABLE_NAME;
+
+/**
+ * Persists provider descriptors so the launcher can be filled without asking
+ * the PackageManager for labels, icons and themes of every provider on start.
+ * The database is kept open by the helper between calls.
+ */
+public class ProviderDescriptorCache extends SQLiteOpenHelper {
+
+    public static final int DATABASE_VERSION = 2;
+    public static final String DATABASE_NAME = "providerDescriptors.db";
+
+    public final class DescriptorReaderContract {
+        private DescriptorReaderContract() {
+        }
+
+        public class DescriptorEntry implements BaseColumns {
+            public static final String TABLE_NAME = "descriptor";
+            public static final String COLUMN_NAME_COMPONENT = "component";
+            public static final String COLUMN_NAME_VERSION_CODE = "versionCode";
+            public static final String COLUMN_NAME_LAST_UPDATE_TIME = "lastUpdateTime";
+            public static final String COLUMN_NAME_LOCALE = "locale";
+            public static final String COLUMN_NAME_DENSITY_DPI = "densityDpi";
+            public static final String COLUMN_NAME_LABEL = "label";
+            public static final String COLUMN_NAME_ICON = "icon";
+            public static final String COLUMN_NAME_COLOR_PRIMARY_DARK = "colorPrimaryDark";
+            public static final String COLUMN_NAME_COLOR_ACCENT = "colorAccent";
+            public static final String COLUMN_NAME_CAN_PLAY_OFFLINE = "canPlayOffline";
+            public static final String COLUMN_NAME_NOTIFICATION_ICON = "notificationIcon";
+        }
+    }
+
+    private static final String SQL_CREATE_ENTRIES =
+            "CREATE TABLE " + TABLE_NAME + " (" +
+                    DescriptorReaderContract.DescriptorEntry._ID + " INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL," +
+                    DescriptorReaderContract.DescriptorEntry.COLUMN_NAME_COMPONENT + " TEXT UNIQUE NOT NULL," +
+                    DescriptorReaderContract.DescriptorEntry.COLUMN_NAME_VERSION_CODE + " INTEGER," +
+                    DescriptorReaderContract.DescriptorEntry.COLUMN_NAME_LAST_UPDATE_TIME + " INTEGER," +
+                    DescriptorReaderContract.DescriptorEntry.COLUMN_NAME_LOCALE + " TEXT," +
+                    DescriptorReaderContract.DescriptorEntry.COLUMN_NAME_DENSITY_DPI + " INTEGER," +
+                    DescriptorReaderContract.DescriptorEntry.COLUMN_NAME_LABEL + " TEXT," +
+                    DescriptorReaderContract.DescriptorEntry.COLUMN_NAME_ICON + " BLOB," +
+                    DescriptorReaderContract.DescriptorEntry.COLUMN_NAME_COLOR_PRIMARY_DARK + " INTEGER," +
+                    DescriptorReaderContract.DescriptorEntry.COLUMN_NAME_COLOR_ACCENT + " INTEGER," +
+                    DescriptorReaderContract.DescriptorEntry.COLUMN_NAME_CAN_PLAY_OFFLINE + " INTEGER," +
+                    DescriptorReaderContract.DescriptorEntry.COLUMN_NAME_NOTIFICATION_ICON + " BLOB)";
+
+    private static final String SQL_DELETE_ENTRIES =
+            "DROP TABLE IF EXISTS " + TABLE_NAME;
+
+    public ProviderDescriptorCache(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    }
+
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL(SQL_CREATE_ENTRIES);
+    }
+
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        db.execSQL(SQL_DELETE_ENTRIES);
+        onCreate(db);
+    }
+
+    public void onDowngrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        onUpgrade(db, oldVersion, newVersion);
+    }
+
+    private static byte[] toPng(Bitmap bitmap) {
+        if (bitmap == null) return null;
+
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        bitmap.compress(Bitmap.CompressFormat.PNG, 100, stream);
+        return stream.toByteArray();
+    }
+
+    private static Bitmap fromPng(byte[] data) {
+        if (data == null) return null;
+        return BitmapFactory.decodeByteArray(data, 0, data.length);
+    }
+
+    /**
+     * Stores descriptor replacing the previous one of the same component.
+     */
+    public void put(ProviderDescriptor descriptor) {
+        SQLiteDatabase db = getWritableDatabase();
+
+        ContentValues values = new ContentValues();
+        values.put(DescriptorReaderContract.DescriptorEntry.COLUMN_NAME_COMPONENT, descriptor.name.flattenToString());
+        values.put(DescriptorReaderContract.DescriptorEntry.COLUMN_NAME_VERSION_CODE, descriptor.versionCode);
+        values.put(DescriptorReaderContract.DescriptorEntry.COLUMN_NAME_LAST_UPDATE_TIME, descriptor.lastUpdateTime);
+        values.put(DescriptorReaderContract.DescriptorEntry.COLUMN_NAME_LOCALE, descriptor.locale);
+        values.put(DescriptorReaderContract.DescriptorEntry.COLUMN_NAME_DENSITY_DPI, descriptor.densityDpi);
+        values.put(DescriptorReaderContract.DescriptorEntry.COLUMN_NAME_LABEL, descriptor.label);
+        values.put(DescriptorReaderContract.DescriptorEntry.COLUMN_NAME_ICON, toPng(descriptor.icon));
+        values.put(DescriptorReaderContract.DescriptorEntry.COLUMN_NAME_COLOR_PRIMARY_DARK, descriptor.colorPrimaryDark);
+        values.put(DescriptorReaderContract.DescriptorEntry.COLUMN_NAME_COLOR_ACCENT, descriptor.colorAccent);
+        values.put(DescriptorReaderContract.DescriptorEntry.COLUMN_NAME_CAN_PLAY_OFFLINE, descriptor.canPlayOffline ? 1 : 0);
+        values.put(DescriptorReaderContract.DescriptorEntry.COLUMN_NAME_NOTIFICATION_ICON, toPng(descriptor.notificationIcon));
+
+        db.insertWithOnConflict(TABLE_NAME, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    /**
+     * Removes descriptors of components which are not present in the given set.
+     */
+    public void retainOnly(Set<ComponentName> names) {
+        SQLiteDatabase db = getWritableDatabase();
+
+        Cursor cursor = db.query(TABLE_NAME
+                , new String[]{DescriptorReaderContract.DescriptorEntry.COLUMN_NAME_COMPONENT}
+                , null, null, null, null, null
+        );
+        db.beginTransaction();
+        try {
+            while (cursor.moveToNext()) {
+                final String component = cursor.getString(0);
+                if (names.contains(ComponentName.unflattenFromString(component)) == false) {
+                    db.delete(TABLE_NAME
+                            , DescriptorReaderContract.DescriptorEntry.COLUMN_NAME_COMPONENT + " = ?"
+                            , new String[]{component}
+                    );
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            cursor.close();
+        }
+    }
+
+    /**
+     * Reads all stored descriptors at once.
+     */
+    public Map<ComponentName, ProviderDescriptor> getCachedDescriptors() {
+        SQLiteDatabase db = getReadableDatabase();
+
+        Cursor cursor = db.query(TABLE_NAME, null, null, null, null, null, null);
+
+        Map<ComponentName, ProviderDescriptor> descriptors = new HashMap<>();
+
+        final int componentIdx = cursor.getColumnIndexOrThrow(DescriptorReaderContract.DescriptorEntry.COLUMN_NAME_COMPONENT);
+        final int versionCodeIdx = cursor.getColumnIndexOrThrow(DescriptorReaderContract.DescriptorEntry.COLUMN_NAME_VERSION_CODE);
+        final int lastUpdateTimeIdx = cursor.getColumnIndexOrThrow(DescriptorReaderContract.DescriptorEntry.COLUMN_NAME_LAST_UPDATE_TIME);
+        final int localeIdx = cursor.getColumnIndexOrThrow(DescriptorReaderContract.DescriptorEntry.COLUMN_NAME_LOCALE);
+        final int densityDpiIdx = cursor.getColumnIndexOrThrow(DescriptorReaderContract.DescriptorEntry.COLUMN_NAME_DENSITY_DPI);
+        final int labelIdx = cursor.getColumnIndexOrThrow(DescriptorReaderContract.DescriptorEntry.COLUMN_NAME_LABEL);
+        final int iconIdx = cursor.getColumnIndexOrThrow(DescriptorReaderContract.DescriptorEntry.COLUMN_NAME_ICON);
+        final int colorPrimaryDarkIdx = cursor.getColumnIndexOrThrow(DescriptorReaderContract.DescriptorEntry.COLUMN_NAME_COLOR_PRIMARY_DARK);
+        final int colorAccentIdx = cursor.getColumnIndexOrThrow(DescriptorReaderContract.DescriptorEntry.COLUMN_NAME_COLOR_ACCENT);
+        final int canPlayOfflineIdx = cursor.getColumnIndexOrThrow(DescriptorReaderContract.DescriptorEntry.COLUMN_NAME_CAN_PLAY_OFFLINE);
+        final int notificationIconIdx = cursor.getColumnIndexOrThrow(DescriptorReaderContract.DescriptorEntry.COLUMN_NAME_NOTIFICATION_ICON);
+
+        while (cursor.moveToNext()) {
+            final ComponentName name = ComponentName.unflattenFromString(cursor.getString(componentIdx));
+            if (name == null) continue;
+
+            ProviderDescriptor descriptor = new ProviderDescriptor
+                    (name
+                            , cursor.getInt(versionCodeIdx)
+                            , cursor.getLong(lastUpdateTimeIdx)
+                            , cursor.getString(localeIdx)
+                            , cursor.getInt(densityDpiIdx)
+                            , cursor.getString(labelIdx)
+                            , fromPng(cursor.getBlob(iconIdx))
+                            , cursor.getInt(colorPrimaryDarkIdx)
+                            , cursor.getInt(colorAccentIdx)
+                            , cursor.getInt(canPlayOfflineIdx) != 0
+                            , fromPng(cursor.getBlob(notificationIconIdx))
+                    );
+            descriptors.put(name, descriptor);
+        }
+
+        cursor.close();
+
+        return descriptors;
+    }
+}
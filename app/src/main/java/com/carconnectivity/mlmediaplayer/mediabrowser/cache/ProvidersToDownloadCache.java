@@ -35,20 +35,27 @@ import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 import android.provider.BaseColumns;
+import android.text.TextUtils;
 
 import com.carconnectivity.mlmediaplayer.mediabrowser.retrofit.model.ProviderToDownloadModel;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import static com.carconnectivity.mlmediaplayer.mediabrowser.cache.ProvidersToDownloadCache.ProviderReaderContract.ProviderEntry.TABLE_NAME;
 
 /**
+ * Catalogue updates are applied as a single transaction touching only the rows which
+ * changed. The database stays open and rows are mirrored in memory once read, so
+ * refreshing the catalogue costs work proportional to the changes only.
+ *
  * @author Comarch S.A.
  */
 public class ProvidersToDownloadCache extends SQLiteOpenHelper {
 
-    public static final int DATABASE_VERSION = 1;
+    public static final int DATABASE_VERSION = 2;
     public static final String DATABASE_NAME = "providersCache.db";
 
     public final class ProviderReaderContract {
@@ -57,6 +64,7 @@ public class ProvidersToDownloadCache extends SQLiteOpenHelper {
 
         public class ProviderEntry implements BaseColumns {
             public static final String TABLE_NAME = "provider";
+            public static final String INDEX_NAME_ID = "provider_id";
             public static final String COLUMN_NAME_ID = "id";
             public static final String COLUMN_NAME_LABEL = "label";
             public static final String COLUMN_NAME_ICON_URL = "iconUrl";
@@ -67,19 +75,29 @@ public class ProvidersToDownloadCache extends SQLiteOpenHelper {
     private static final String SQL_CREATE_ENTRIES =
             "CREATE TABLE " + TABLE_NAME + " (" +
                     ProviderReaderContract.ProviderEntry._ID + " INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL," +
-                    ProviderReaderContract.ProviderEntry.COLUMN_NAME_ID + " TEXT," +
+                    ProviderReaderContract.ProviderEntry.COLUMN_NAME_ID + " TEXT NOT NULL," +
                     ProviderReaderContract.ProviderEntry.COLUMN_NAME_LABEL + " TEXT," +
                     ProviderReaderContract.ProviderEntry.COLUMN_NAME_ICON_URL + " TEXT)";
 
+    private static final String SQL_CREATE_INDEX =
+            "CREATE UNIQUE INDEX " + ProviderReaderContract.ProviderEntry.INDEX_NAME_ID +
+                    " ON " + TABLE_NAME + " (" + ProviderReaderContract.ProviderEntry.COLUMN_NAME_ID + ")";
+
     private static final String SQL_DELETE_ENTRIES =
             "DROP TABLE IF EXISTS " + TABLE_NAME;
 
+    private static final String WHERE_ID = ProviderReaderContract.ProviderEntry.COLUMN_NAME_ID + " = ?";
+
+    /* rows of the table by provider id, null until first read */
+    private Map<String, ProviderToDownloadModel> mMirror;
+
     public ProvidersToDownloadCache(Context context) {
         super(context, DATABASE_NAME, null, DATABASE_VERSION);
     }
 
     public void onCreate(SQLiteDatabase db) {
         db.execSQL(SQL_CREATE_ENTRIES);
+        db.execSQL(SQL_CREATE_INDEX);
     }
 
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
@@ -91,32 +109,63 @@ public class ProvidersToDownloadCache extends SQLiteOpenHelper {
         onUpgrade(db, oldVersion, newVersion);
     }
 
-    public void deleteAllRows() {
-        SQLiteDatabase db = getWritableDatabase();
-
-        db.delete(TABLE_NAME, null, null);
-
-        db.close();
-    }
+    /**
+     * Replaces cached catalogue with the given one: new providers are inserted, changed ones
+     * updated and missing ones deleted, all in one transaction. Providers without id are skipped,
+     * the last one wins if the same id is listed more than once.
+     *
+     * @return true if any row was changed
+     */
+    public synchronized boolean update(List<ProviderToDownloadModel> providerToDownloads) {
+        final Map<String, ProviderToDownloadModel> current = getMirror();
+        final Map<String, ProviderToDownloadModel> updated = new LinkedHashMap<>();
+        for (ProviderToDownloadModel providerToDownload : providerToDownloads) {
+            if (providerToDownload.getId() == null) continue;
+            updated.put(providerToDownload.getId(), providerToDownload);
+        }
 
-    public void insert(List<ProviderToDownloadModel> providerToDownloads) {
         SQLiteDatabase db = getWritableDatabase();
+        boolean changed = false;
+        db.beginTransaction();
+        try {
+            for (String id : current.keySet()) {
+                if (updated.containsKey(id) == false) {
+                    db.delete(TABLE_NAME, WHERE_ID, new String[]{id});
+                    changed = true;
+                }
+            }
+
+            for (ProviderToDownloadModel providerToDownload : updated.values()) {
+                final ProviderToDownloadModel cached = current.get(providerToDownload.getId());
+                if (cached == null) {
+                    db.insert(TABLE_NAME, null, toValues(providerToDownload));
+                } else if (isSame(cached, providerToDownload) == false) {
+                    db.update(TABLE_NAME, toValues(providerToDownload), WHERE_ID
+                            , new String[]{providerToDownload.getId()});
+                } else {
+                    continue;
+                }
+                changed = true;
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
 
-        for (ProviderToDownloadModel providerToDownload : providerToDownloads
-                ) {
-            ContentValues values = new ContentValues();
-
-            values.put(ProviderReaderContract.ProviderEntry.COLUMN_NAME_ID, providerToDownload.getId());
-            values.put(ProviderReaderContract.ProviderEntry.COLUMN_NAME_LABEL, providerToDownload.getLabel());
-            values.put(ProviderReaderContract.ProviderEntry.COLUMN_NAME_ICON_URL, providerToDownload.getIconUrl());
-
-            db.insert(TABLE_NAME, null, values);
+        /* mirror is replaced only after commit, so it never differs from the table */
+        if (changed) {
+            mMirror = updated;
         }
+        return changed;
+    }
 
-        db.close();
+    public synchronized List<ProviderToDownloadModel> getCachedProviders() {
+        return new ArrayList<>(getMirror().values());
     }
 
-    public List<ProviderToDownloadModel> getCachedProviders() {
+    private Map<String, ProviderToDownloadModel> getMirror() {
+        if (mMirror != null) return mMirror;
+
         SQLiteDatabase db = getReadableDatabase();
 
         Cursor cursor = db.query(
@@ -126,29 +175,42 @@ public class ProvidersToDownloadCache extends SQLiteOpenHelper {
                 null,
                 null,
                 null,
-                null
+                ProviderReaderContract.ProviderEntry._ID
         );
 
-        List<ProviderToDownloadModel> cachedProviders = new ArrayList<>();
+        Map<String, ProviderToDownloadModel> cachedProviders = new LinkedHashMap<>();
 
-        while (cursor.moveToNext()) {
-            String id = cursor.getString(cursor.getColumnIndexOrThrow(ProviderReaderContract.ProviderEntry.COLUMN_NAME_ID));
-            String label = cursor.getString(cursor.getColumnIndexOrThrow(ProviderReaderContract.ProviderEntry.COLUMN_NAME_LABEL));
-            String iconUrl = cursor.getString(cursor.getColumnIndexOrThrow(ProviderReaderContract.ProviderEntry.COLUMN_NAME_ICON_URL));
+        final int idIdx = cursor.getColumnIndexOrThrow(ProviderReaderContract.ProviderEntry.COLUMN_NAME_ID);
+        final int labelIdx = cursor.getColumnIndexOrThrow(ProviderReaderContract.ProviderEntry.COLUMN_NAME_LABEL);
+        final int iconUrlIdx = cursor.getColumnIndexOrThrow(ProviderReaderContract.ProviderEntry.COLUMN_NAME_ICON_URL);
 
+        while (cursor.moveToNext()) {
             ProviderToDownloadModel providerToDownloadModel = new ProviderToDownloadModel();
-            providerToDownloadModel.setId(id);
-            providerToDownloadModel.setLabel(label);
-            providerToDownloadModel.setIconUrl(iconUrl);
+            providerToDownloadModel.setId(cursor.getString(idIdx));
+            providerToDownloadModel.setLabel(cursor.getString(labelIdx));
+            providerToDownloadModel.setIconUrl(cursor.getString(iconUrlIdx));
 
-            cachedProviders.add(providerToDownloadModel);
+            cachedProviders.put(providerToDownloadModel.getId(), providerToDownloadModel);
         }
 
         cursor.close();
-        db.close();
 
-        return cachedProviders;
+        mMirror = cachedProviders;
+        return mMirror;
     }
 
+    private static ContentValues toValues(ProviderToDownloadModel providerToDownload) {
+        ContentValues values = new ContentValues();
+
+        values.put(ProviderReaderContract.ProviderEntry.COLUMN_NAME_ID, providerToDownload.getId());
+        values.put(ProviderReaderContract.ProviderEntry.COLUMN_NAME_LABEL, providerToDownload.getLabel());
+        values.put(ProviderReaderContract.ProviderEntry.COLUMN_NAME_ICON_URL, providerToDownload.getIconUrl());
 
+        return values;
+    }
+
+    private static boolean isSame(ProviderToDownloadModel lhs, ProviderToDownloadModel rhs) {
+        return TextUtils.equals(lhs.getLabel(), rhs.getLabel())
+                && TextUtils.equals(lhs.getIconUrl(), rhs.getIconUrl());
+    }
 }
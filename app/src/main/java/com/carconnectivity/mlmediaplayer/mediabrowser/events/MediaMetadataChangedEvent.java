@@ -31,13 +31,13 @@ package com.carconnectivity.mlmediaplayer.mediabrowser.events;
 
 import com.carconnectivity.mlmediaplayer.mediabrowser.ProviderViewActive;
 import com.carconnectivity.mlmediaplayer.mediabrowser.model.TrackMetadata;
-import com.carconnectivity.mlmediaplayer.utils.event.RockScoutEvent;
+import com.carconnectivity.mlmediaplayer.utils.event.ConflatedEvent;
 
 /**
  * Stores information about media metadata.
  * Sticky event
  */
-public final class MediaMetadataChangedEvent implements RockScoutEvent {
+public final class MediaMetadataChangedEvent implements ConflatedEvent {
     public final ProviderViewActive provider;
     public final TrackMetadata metadata;
 
@@ -46,6 +46,11 @@ public final class MediaMetadataChangedEvent implements RockScoutEvent {
         this.metadata = metadata;
     }
 
+    @Override
+    public Object getConflationKey() {
+        return provider != null ? provider.getUniqueName() : null;
+    }
+
     @Override
     public String toString() {
         return "MediaMetadataChangedEvent{" +
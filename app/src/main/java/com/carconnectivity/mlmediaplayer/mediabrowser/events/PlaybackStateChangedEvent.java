@@ -35,7 +35,7 @@ import com.carconnectivity.mlmediaplayer.utils.event.RockScoutEvent;
 
 /**
  * Stores information about playback status.
- * Sticky event.
+ * Sticky event. Not conflated, as SessionManager publishes the audio context from every state.
  */
 public final class PlaybackStateChangedEvent implements RockScoutEvent {
     /**
@@ -0,0 +1,71 @@
+/*
+ * Copyright Car Connectivity Consortium
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * You may decide to give the Car Connectivity Consortium input, suggestions
+ * or feedback of a technical nature which may be implemented on the
+ * Car Connectivity Consortium products (“Feedback”).
+ *
+ * You agrees that any such Feedback is given on non-confidential
+ * basis and Licensee hereby waives any confidentiality restrictions
+ * for such Feedback. In addition, Licensee grants to the Car Connectivity Consortium
+ * and its affiliates a worldwide, non-exclusive, perpetual, irrevocable,
+ * sub-licensable, royalty-free right and license under Licensee’s copyrights to copy,
+ * reproduce, modify, create derivative works and directly or indirectly
+ * distribute, make available and communicate to public the Feedback
+ * in or in connection to any CCC products, software and/or services.
+ */
+
+package com.carconnectivity.mlmediaplayer.mediabrowser.events;
+
+import android.content.ComponentName;
+
+import com.carconnectivity.mlmediaplayer.utils.event.RockScoutEvent;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+public final class PrefetchDirectoriesEvent implements RockScoutEvent {
+    /**
+     * Name of provider which is browsed, cannot be null.
+     */
+    public final ComponentName providerName;
+
+    /**
+     * Ids of browsable directories visible on the current page, cannot be null.
+     */
+    public final List<String> directoryIds;
+
+    public PrefetchDirectoriesEvent(ComponentName providerName, Collection<String> directoryIds) {
+        if (providerName == null) {
+            throw new IllegalArgumentException("Provider name cannot be null.");
+        }
+        if (directoryIds == null) {
+            throw new IllegalArgumentException("Directory ids cannot be null.");
+        }
+
+        this.providerName = providerName;
+        this.directoryIds = Collections.unmodifiableList(new ArrayList<>(directoryIds));
+    }
+
+    @Override
+    public String toString() {
+        return "PrefetchDirectoriesEvent{" +
+                "providerName=" + providerName +
+                ", directoryIds=" + directoryIds +
+                '}';
+    }
+}
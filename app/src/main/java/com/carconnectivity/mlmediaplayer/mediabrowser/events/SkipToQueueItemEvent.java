@@ -33,24 +33,25 @@ import com.carconnectivity.mlmediaplayer.mediabrowser.ProviderViewActive;
 import com.carconnectivity.mlmediaplayer.utils.event.RockScoutEvent;
 
 /**
- * Event notifying about playback progress updates
+ * Event requesting to jump to specific item of the play queue
  */
-public final class ProgressUpdateEvent implements RockScoutEvent {
-    /**
-     * Progress of current playback as float value between 0 and 1
-     */
-    public final float progress;
+public final class SkipToQueueItemEvent implements RockScoutEvent {
     public final ProviderViewActive provider;
+    public final long queueId;
+
+    public SkipToQueueItemEvent(ProviderViewActive provider, long queueId) {
+        if (provider == null) {
+            throw new IllegalArgumentException("Provider cannot be null.");
+        }
 
-    public ProgressUpdateEvent(ProviderViewActive provider, float progress) {
         this.provider = provider;
-        this.progress = progress;
+        this.queueId = queueId;
     }
 
     @Override
     public String toString() {
-        return "ProgressUpdateEvent{" +
-                "progress=" + progress +
+        return "SkipToQueueItemEvent{" +
+                "queueId=" + queueId +
                 '}';
     }
 }
@@ -0,0 +1,107 @@
+/*
+ * Copyright Car Connectivity Consortium
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * You may decide to give the Car Connectivity Consortium input, suggestions
+ * or feedback of a technical nature which may be implemented on the
+ * Car Connectivity Consortium products (“Feedback”).
+ *
+ * You agrees that any such Feedback is given on non-confidential
+ * basis and Licensee hereby waives any confidentiality restrictions
+ * for such Feedback. In addition, Licensee grants to the Car Connectivity Consortium
+ * and its affiliates a worldwide, non-exclusive, perpetual, irrevocable,
+ * sub-licensable, royalty-free right and license under Licensee’s copyrights to copy,
+ * reproduce, modify, create derivative works and directly or indirectly
+ * distribute, make available and communicate to public the Feedback
+ * in or in connection to any CCC products, software and/or services.
+ */
+
+package com.carconnectivity.mlmediaplayer.mediabrowser.model;
+
+import android.content.ComponentName;
+import android.graphics.Bitmap;
+import android.text.TextUtils;
+
+/**
+ * Everything needed to present a provider in the launcher which otherwise has to be
+ * resolved from the PackageManager: label, rendered icon, theme colors, offline flag
+ * and the notification icon. Valid as long as the package version, locale and screen
+ * density are not changed.
+ */
+public class ProviderDescriptor {
+    public final ComponentName name;
+    public final int versionCode;
+    public final long lastUpdateTime;
+    public final String locale;
+    public final int densityDpi;
+    public final String label;
+    public final Bitmap icon;
+    public final int colorPrimaryDark;
+    public final int colorAccent;
+    public final boolean canPlayOffline;
+    public final Bitmap notificationIcon;
+
+    public ProviderDescriptor
+            (ComponentName name
+                    , int versionCode
+                    , long lastUpdateTime
+                    , String locale
+                    , int densityDpi
+                    , String label
+                    , Bitmap icon
+                    , int colorPrimaryDark
+                    , int colorAccent
+                    , boolean canPlayOffline
+                    , Bitmap notificationIcon
+            ) {
+        if (name == null) {
+            throw new IllegalArgumentException("Name cannot be null.");
+        }
+        this.name = name;
+        this.versionCode = versionCode;
+        this.lastUpdateTime = lastUpdateTime;
+        this.locale = locale;
+        this.densityDpi = densityDpi;
+        this.label = label;
+        this.icon = icon;
+        this.colorPrimaryDark = colorPrimaryDark;
+        this.colorAccent = colorAccent;
+        this.canPlayOffline = canPlayOffline;
+        this.notificationIcon = notificationIcon;
+    }
+
+    /**
+     * Returns true if descriptor was created for the given version of the package,
+     * labels and icons depend also on the locale and density they were loaded for.
+     */
+    public boolean isValidFor(int versionCode, long lastUpdateTime, String locale, int densityDpi) {
+        return this.versionCode == versionCode && this.lastUpdateTime == lastUpdateTime
+                && this.densityDpi == densityDpi && TextUtils.equals(this.locale, locale);
+    }
+
+    @Override
+    public String toString() {
+        return "ProviderDescriptor{" +
+                "name=" + name +
+                ", versionCode=" + versionCode +
+                ", lastUpdateTime=" + lastUpdateTime +
+                ", locale='" + locale + '\'' +
+                ", densityDpi=" + densityDpi +
+                ", label='" + label + '\'' +
+                ", colorPrimaryDark=" + colorPrimaryDark +
+                ", colorAccent=" + colorAccent +
+                ", canPlayOffline=" + canPlayOffline +
+                '}';
+    }
+}
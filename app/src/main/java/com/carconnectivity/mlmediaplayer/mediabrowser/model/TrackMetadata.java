@@ -30,6 +30,9 @@
 package com.carconnectivity.mlmediaplayer.mediabrowser.model;
 
 import android.graphics.Bitmap;
+import android.text.TextUtils;
+
+import com.carconnectivity.mlmediaplayer.utils.ImageUtils;
 
 /**
  * Created by belickim on 06/06/15.
@@ -40,6 +43,10 @@ public class TrackMetadata {
     public final Long duration;
     public final String artUri;
     public final Bitmap artBmp;
+    /**
+     * Content hash of the art bitmap, 0 if there is no bitmap.
+     */
+    public final long artFingerprint;
 
     public TrackMetadata
             (String title, String artist, Long duration, String artUri, Bitmap artBmp) {
@@ -48,22 +55,33 @@ public class TrackMetadata {
         this.duration = duration;
         this.artUri = artUri;
         this.artBmp = artBmp;
+        this.artFingerprint = ImageUtils.fingerprint(artBmp);
     }
 
     public static TrackMetadata createEmpty() {
         return new TrackMetadata(null, null, 0L, null, null);
     }
 
+    /**
+     * Compares metadata by content, bitmaps are compared by their fingerprints.
+     */
     public boolean sameAsOther(TrackMetadata other) {
         if (other == null) return false;
 
-        final boolean titleMatch = title != null && title.equals(other.title);
-        final boolean artistMatch = artist != null && artist.equals(other.artist);
-        final boolean durationMatch = duration != null && duration.equals(other.duration);
-        final boolean artUriMatch = artUri != null && artUri.equals(other.artUri);
-        final boolean artBmpMatch = artBmp != null && artBmp.equals(other.artBmp);
+        final boolean titleMatch = TextUtils.equals(title, other.title);
+        final boolean artistMatch = TextUtils.equals(artist, other.artist);
+        final boolean durationMatch
+                = duration != null ? duration.equals(other.duration) : other.duration == null;
+
+        return titleMatch && artistMatch && durationMatch && sameArtAs(other);
+    }
+
+    public boolean sameArtAs(TrackMetadata other) {
+        if (other == null) return false;
 
-        return titleMatch && artistMatch && durationMatch && artUriMatch && artBmpMatch;
+        return TextUtils.equals(artUri, other.artUri)
+                && (artBmp == null) == (other.artBmp == null)
+                && artFingerprint == other.artFingerprint;
     }
 
     public boolean isTitleEmpty() {
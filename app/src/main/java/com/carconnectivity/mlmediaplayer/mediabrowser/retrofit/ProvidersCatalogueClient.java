@@ -0,0 +1,103 @@
+/*
+ * Copyright Car Connectivity Consortium
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * You may decide to give the Car Connectivity Consortium input, suggestions
+ * or feedback of a technical nature which may be implemented on the
+ * Car Connectivity Consortium products (“Feedback”).
+ *
+ * You agrees that any such Feedback is given on non-confidential
+ * basis and Licensee hereby waives any confidentiality restrictions
+ * for such Feedback. In addition, Licensee grants to the Car Connectivity Consortium
+ * and its affiliates a worldwide, non-exclusive, perpetual, irrevocable,
+ * sub-licensable, royalty-free right and license under Licensee’s copyrights to copy,
+ * reproduce, modify, create derivative works and directly or indirectly
+ * distribute, make available and communicate to public the Feedback
+ * in or in connection to any CCC products, software and/or services.
+ */
+
+package com.carconnectivity.mlmediaplayer.mediabrowser.retrofit;
+
+import android.content.Context;
+
+import com.carconnectivity.mlmediaplayer.mediabrowser.retrofit.model.ProvidersToDownloadModel;
+
+import java.io.File;
+import java.net.HttpURLConnection;
+
+import okhttp3.Cache;
+import okhttp3.OkHttpClient;
+import retrofit2.Call;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+import retrofit2.converter.simplexml.SimpleXmlConverterFactory;
+
+/**
+ * Process wide client of the catalogue of providers available for download. One OkHttp
+ * client with its connection pool and dispatcher is shared by all refreshes and responses
+ * are kept in an on-disk HTTP cache. Every request revalidates the cached catalogue with
+ * its ETag / Last-Modified validators, so an unchanged catalogue is answered with 304
+ * and read back from the cache.
+ */
+public final class ProvidersCatalogueClient {
+    static final String BASE_URL = "https://www.mirrorlink.com/";
+    private static final String CACHE_DIRECTORY = "catalogue";
+    private static final long MAX_CACHE_BYTES = 512 * 1024;
+
+    private static ProvidersCatalogueClient sInstance;
+
+    private final OkHttpClient mHttpClient;
+    private final ProvidersToDownloadService mService;
+
+    public static synchronized ProvidersCatalogueClient getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new ProvidersCatalogueClient(
+                    new File(context.getApplicationContext().getCacheDir(), CACHE_DIRECTORY), BASE_URL);
+        }
+        return sInstance;
+    }
+
+    /* visible for tests, which use own cache directory and server */
+    ProvidersCatalogueClient(File cacheDirectory, String baseUrl) {
+        mHttpClient = new OkHttpClient.Builder()
+                .cache(new Cache(cacheDirectory, MAX_CACHE_BYTES))
+                .build();
+        final Retrofit retrofit = new Retrofit.Builder()
+                .baseUrl(baseUrl)
+                .client(mHttpClient)
+                .addConverterFactory(SimpleXmlConverterFactory.create())
+                .build();
+        mService = retrofit.create(ProvidersToDownloadService.class);
+    }
+
+    /**
+     * @return new call downloading or revalidating the catalogue
+     */
+    public Call<ProvidersToDownloadModel> newCall() {
+        return mService.getProviders();
+    }
+
+    /**
+     * @return true if the server confirmed the cached catalogue is still current,
+     * the body of such response was read from the cache
+     */
+    public static boolean isNotModified(Response<?> response) {
+        final okhttp3.Response networkResponse = response.raw().networkResponse();
+        return networkResponse != null && networkResponse.code() == HttpURLConnection.HTTP_NOT_MODIFIED;
+    }
+
+    OkHttpClient getHttpClient() {
+        return mHttpClient;
+    }
+}
@@ -33,12 +33,15 @@ import com.carconnectivity.mlmediaplayer.mediabrowser.retrofit.model.ProvidersTo
 
 import retrofit2.Call;
 import retrofit2.http.GET;
+import retrofit2.http.Headers;
 
 /**
  * @author Comarch S.A.
  */
 public interface ProvidersToDownloadService {
 
+    /* cached catalogue is always revalidated with a conditional request */
+    @Headers("Cache-Control: no-cache")
     @GET("img/mirrorlink/upload/documents/mirror_link_compatible_apps.xml")
     Call<ProvidersToDownloadModel> getProviders();
 
@@ -41,6 +41,7 @@ import android.util.Log;
 import android.widget.RemoteViews;
 
 import com.carconnectivity.mlmediaplayer.R;
+import com.carconnectivity.mlmediaplayer.commonapi.BinderCallStats;
 import com.carconnectivity.mlmediaplayer.commonapi.MirrorLinkApplicationContext;
 import com.carconnectivity.mlmediaplayer.commonapi.MirrorLinkConnectionManager;
 import com.carconnectivity.mlmediaplayer.commonapi.events.MirrorLinkSessionChangedEvent;
@@ -49,13 +50,18 @@ import com.carconnectivity.mlmediaplayer.mediabrowser.events.ClearLauncherList;
 import com.carconnectivity.mlmediaplayer.mediabrowser.events.DisableEventsEvent;
 import com.carconnectivity.mlmediaplayer.mediabrowser.events.FinishActivityEvent;
 import com.carconnectivity.mlmediaplayer.mediabrowser.events.ProviderDiscoveryFinished;
+import com.carconnectivity.mlmediaplayer.mediabrowser.events.ProviderPackageChangedEvent;
 import com.carconnectivity.mlmediaplayer.mediabrowser.events.RefreshProvidersEvent;
 import com.carconnectivity.mlmediaplayer.mediabrowser.events.ShowLauncherFragment;
 import com.carconnectivity.mlmediaplayer.mediabrowser.events.TerminateEvent;
 import com.carconnectivity.mlmediaplayer.mediabrowser.receiver.CancelReceiver;
+import com.carconnectivity.mlmediaplayer.mediabrowser.receiver.PackageChangeReceiver;
 import com.carconnectivity.mlmediaplayer.ui.MainActivity;
 import com.carconnectivity.mlmediaplayer.utils.RsEventBus;
 
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
+
 /**
  * Created by sebastian.sokolowski on 21.03.16.
  */
@@ -65,6 +71,7 @@ public class RockScoutService extends Service {
     private MirrorLinkConnectionManager mMirrorLinkConnectionManager;
     private SessionManager mManager;
     private Handler mProvidersHandler;
+    private PackageChangeReceiver mPackageChangeReceiver;
 
     private boolean mHeadUnitIsConnected = false;
     private boolean mTerminateReceived = false;
@@ -92,6 +99,9 @@ public class RockScoutService extends Service {
         mManager = new SessionManager(this, getPackageManager());
 
         RsEventBus.registerSticky(this);
+
+        mPackageChangeReceiver = new PackageChangeReceiver();
+        registerReceiver(mPackageChangeReceiver, PackageChangeReceiver.createIntentFilter());
     }
 
     @Override
@@ -119,6 +129,16 @@ public class RockScoutService extends Service {
         return null;
     }
 
+    /**
+     * Prints binder call statistics, available through
+     * adb shell dumpsys activity service RockScoutService
+     */
+    @Override
+    protected void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+        super.dump(fd, writer, args);
+        BinderCallStats.dump(writer);
+    }
+
     @Override
     public void onLowMemory() {
         super.onLowMemory();
@@ -129,7 +149,9 @@ public class RockScoutService extends Service {
     public void onDestroy() {
         Log.d(TAG, "onDestroy");
         super.onDestroy();
+        unregisterReceiver(mPackageChangeReceiver);
         mMirrorLinkConnectionManager.disconnectFromApiService();
+        BinderCallStats.dumpToLog();
         RsEventBus.post(new DisableEventsEvent());
         RsEventBus.unregister(this);
     }
@@ -139,6 +161,10 @@ public class RockScoutService extends Service {
         if (event.headUnitIsConnected) {
             mHeadUnitIsConnected = true;
         } else {
+            if (mHeadUnitIsConnected) {
+                /* session ended, leave binder timings of the head unit in the log */
+                BinderCallStats.dumpToLog();
+            }
             mHeadUnitIsConnected = false;
         }
         launcherRefreshApps();
@@ -148,19 +174,22 @@ public class RockScoutService extends Service {
     public void onEvent(RefreshProvidersEvent event) {
         if (!mProviderDiscoveryFinished) return;
         if (!mTerminateReceived) {
-            mProvidersHandler.post(new Runnable() {
-                @Override
-                public void run() {
-                    mManager.refreshProviders();
-                }
-            });
-
             mManager.tryConnectIfDisconnected();
         } else {
             exit();
         }
     }
 
+    @SuppressWarnings("unused")
+    public void onEvent(final ProviderPackageChangedEvent event) {
+        mProvidersHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                mManager.refreshPackage(event.packageName);
+            }
+        });
+    }
+
     @SuppressWarnings("unused")
     public void onEvent(TerminateEvent event) {
         mTerminateReceived = true;
@@ -361,6 +361,15 @@ public class MainActivity extends Activity implements InteractionListener {
         switchFragment(mNavigatorFragment);
     }
 
+    public void openQueue(View caller) {
+        if (mNavigatorFragment == null) {
+            final String rootDirectoryName = getResources().getString(R.string.top_level);
+            mNavigatorFragment = NavigatorFragment.newInstance(rootDirectoryName);
+        }
+        mNavigatorFragment.openQueue();
+        switchFragment(mNavigatorFragment);
+    }
+
     public void openMediaPlayer(View caller) {
         if (mPlayerFragment == null)
             mPlayerFragment = MediaPlayerFragment.newInstance();
@@ -46,9 +46,9 @@ import com.carconnectivity.mlmediaplayer.mediabrowser.ProviderView;
 import com.carconnectivity.mlmediaplayer.mediabrowser.ProviderViewActive;
 import com.carconnectivity.mlmediaplayer.mediabrowser.ProviderViewInactive;
 import com.carconnectivity.mlmediaplayer.mediabrowser.ProviderViewToDownload;
+import com.carconnectivity.mlmediaplayer.ui.player.AlbumArtLoader;
 import com.carconnectivity.mlmediaplayer.utils.pagination.PaginatedAdapter;
 import com.carconnectivity.mlmediaplayer.utils.pagination.PaginatedCollection;
-import com.squareup.picasso.Picasso;
 
 import java.util.ArrayList;
 import java.util.Comparator;
@@ -199,7 +199,7 @@ public class LauncherProviderGridAdapter extends BaseAdapter implements Paginate
 
     @Override
     public Object getItem(int position) {
-        return mItems.getCurrentItems().get(position);
+        return mItems.getCurrentItem(position);
     }
 
     @Override
@@ -275,7 +275,7 @@ public class LauncherProviderGridAdapter extends BaseAdapter implements Paginate
             ProviderViewInactive viewInactive = (ProviderViewInactive) provider;
 
             viewHolder.appIcon.setImageDrawable(viewInactive.getIconDrawable());
-            Picasso.with(mParentFragment.getActivity()).load(R.drawable.ic_usb_plug).into(viewHolder.appIconAdditional);
+            AlbumArtLoader.getInstance(mParentFragment.getActivity()).getPicasso().load(R.drawable.ic_usb_plug).into(viewHolder.appIconAdditional);
             setInactiveStyle(viewHolder);
 
             Drawable color = mParentFragment.getResources().getDrawable(R.drawable.c4_launcher_icon_background, null);
@@ -285,8 +285,8 @@ public class LauncherProviderGridAdapter extends BaseAdapter implements Paginate
         } else if (provider instanceof ProviderViewToDownload) {
             ProviderViewToDownload viewToDownload = (ProviderViewToDownload) provider;
 
-            Picasso.with(mParentFragment.getActivity()).load(viewToDownload.getIconURL().toString()).into(viewHolder.appIcon);
-            Picasso.with(mParentFragment.getActivity()).load(R.drawable.ic_download).into(viewHolder.appIconAdditional);
+            AlbumArtLoader.getInstance(mParentFragment.getActivity()).getPicasso().load(viewToDownload.getIconURL().toString()).into(viewHolder.appIcon);
+            AlbumArtLoader.getInstance(mParentFragment.getActivity()).getPicasso().load(R.drawable.ic_download).into(viewHolder.appIconAdditional);
             setInactiveStyle(viewHolder);
 
             Drawable color = mParentFragment.getResources().getDrawable(R.drawable.c4_launcher_icon_background, null);
@@ -48,17 +48,22 @@ import android.widget.ProgressBar;
 import android.widget.TextView;
 
 import com.carconnectivity.mlmediaplayer.R;
+import com.carconnectivity.mlmediaplayer.commonapi.events.FramebufferBlockingEvent;
 import com.carconnectivity.mlmediaplayer.commonapi.events.MirrorLinkSessionChangedEvent;
 import com.carconnectivity.mlmediaplayer.mediabrowser.MediaItemView;
+import com.carconnectivity.mlmediaplayer.mediabrowser.PlaybackQueue;
 import com.carconnectivity.mlmediaplayer.mediabrowser.ProviderViewActive;
 import com.carconnectivity.mlmediaplayer.mediabrowser.events.BrowseDirectoryEvent;
 import com.carconnectivity.mlmediaplayer.mediabrowser.events.CurrentlyBrowsedProviderChanged;
 import com.carconnectivity.mlmediaplayer.mediabrowser.events.DisconnectFromProviderEvent;
 import com.carconnectivity.mlmediaplayer.mediabrowser.events.NowPlayingProviderChangedEvent;
 import com.carconnectivity.mlmediaplayer.mediabrowser.events.PlayMediaItemEvent;
+import com.carconnectivity.mlmediaplayer.mediabrowser.events.PrefetchDirectoriesEvent;
 import com.carconnectivity.mlmediaplayer.mediabrowser.events.ProviderBrowseErrorEvent;
 import com.carconnectivity.mlmediaplayer.mediabrowser.events.ProviderBrowseSuccessfulEvent;
 import com.carconnectivity.mlmediaplayer.mediabrowser.events.ProviderConnectErrorEvent;
+import com.carconnectivity.mlmediaplayer.mediabrowser.events.QueueChangedEvent;
+import com.carconnectivity.mlmediaplayer.mediabrowser.events.SkipToQueueItemEvent;
 import com.carconnectivity.mlmediaplayer.ui.BackButtonHandler;
 import com.carconnectivity.mlmediaplayer.ui.MainActivity;
 import com.carconnectivity.mlmediaplayer.utils.RsEventBus;
@@ -78,6 +83,8 @@ public final class NavigatorFragment extends Fragment implements BackButtonHandl
             = NavigatorFragment.class.getSimpleName() + ".provider_name";
     private static final String BREAD_CRUMBS_KEY
             = NavigatorFragment.class.getSimpleName() + ".bread_crumbs";
+    private static final String SHOWING_QUEUE_KEY
+            = NavigatorFragment.class.getSimpleName() + ".showing_queue";
     private static final long SHOW_MISSING_DELAY = TimeUnit.SECONDS.toMillis(20);
     private State mState;
 
@@ -86,6 +93,10 @@ public final class NavigatorFragment extends Fragment implements BackButtonHandl
     private String mRestoredProviderName;
 
     private BreadCrumbs mCrumbs;
+    /* play queue of the now playing provider is shown instead of the bread crumbs level */
+    private boolean mShowingQueue;
+    /* head unit does not show our framebuffer, so there is nobody to prefetch for */
+    private boolean mFramebufferBlocked;
 
     private PaginationController mPaginationController;
     private boolean mUsePagination = false;
@@ -134,6 +145,7 @@ public final class NavigatorFragment extends Fragment implements BackButtonHandl
 
     @SuppressWarnings("unused")
     public void onEventMainThread(BrowseDirectoryEvent event) {
+        if (mShowingQueue) return;
         changeState(State.LOADING);
     }
 
@@ -152,8 +164,33 @@ public final class NavigatorFragment extends Fragment implements BackButtonHandl
         changeBrowsedProvider(event.provider);
     }
 
+    @SuppressWarnings("unused")
+    public void onEventMainThread(FramebufferBlockingEvent event) {
+        if (mFramebufferBlocked == event.isFramebufferBlocked) return;
+        mFramebufferBlocked = event.isFramebufferBlocked;
+        if (mFramebufferBlocked == false) {
+            prefetchCurrentPage();
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public void onEventMainThread(QueueChangedEvent event) {
+        if (mShowingQueue == false || mAdapter == null) return;
+        if (mNowPlayingProvider == null || event.provider == null) return;
+        if (mNowPlayingProvider.hasSameIdAs(event.provider) == false) return;
+
+        if (event.queue.size() == 0) {
+            changeState(State.FAILED);
+        } else if (mState != State.LOADED) {
+            showQueue(getView(), event.queue);
+        } else if (mAdapter.updateQueue(event)) {
+            refreshPaginationController();
+        }
+    }
+
     @SuppressWarnings("unused")
     public void onEventMainThread(ProviderBrowseSuccessfulEvent event) {
+        if (mShowingQueue) return;
         final String currentDirectoryId = mCrumbs.getTopItem().id;
         if (currentDirectoryId != null && currentDirectoryId.equals(event.parentId) == false) {
             Log.d(TAG, "Got browse response with unexpected parent id.");
@@ -170,17 +207,73 @@ public final class NavigatorFragment extends Fragment implements BackButtonHandl
         } else {
             mLastProviderBrowseSuccessfulEvent = event;
             changeState(State.LOADED);
+            prefetchCurrentPage();
         }
 
         mCurrentProviderItems = new ArrayList<>(event.items);
     }
 
+    /**
+     * Switches the fragment to show play queue of the now playing provider, until the
+     * view is destroyed.
+     */
+    public void openQueue() {
+        mShowingQueue = true;
+        final View root = getView();
+        if (root != null && mNowPlayingProvider != null) {
+            showQueue(root, mNowPlayingProvider.getCurrentQueue());
+        }
+    }
+
+    private void showQueue(View root, PlaybackQueue queue) {
+        Log.d(TAG, "showQueue: queue=" + queue);
+        if (root == null) return;
+        mDirectoryNameLabel.setText(R.string.play_queue);
+        if (queue.size() == 0) {
+            changeState(State.FAILED);
+            return;
+        }
+        mAdapter.setQueue(queue);
+        mPaginationController.initializePagination(root, mFocusListener);
+        changeState(State.LOADED);
+        final int activePosition = queue.getActivePosition();
+        if (activePosition >= 0 && mList != null) {
+            mList.setSelection(activePosition % mAdapter.getPageSize());
+        }
+    }
+
+    private void skipToQueueItem(long queueId) {
+        RsEventBus.post(new SkipToQueueItemEvent(mNowPlayingProvider, queueId));
+        ((MainActivity) getActivity()).openMediaPlayer(null);
+    }
+
     public void refreshPaginationController() {
         Log.d(TAG, "refreshPaginationController");
         mPaginationController.setNumbers();
         if (mAdapter != null) {
             mAdapter.notifyDataSetChanged();
         }
+        prefetchCurrentPage();
+    }
+
+    /**
+     * Requests background loading of the browsable items visible on the current page,
+     * so opening them does not wait for the provider.
+     */
+    public void prefetchCurrentPage() {
+        if (mAdapter == null || mCurrentlyBrowsedProvider == null || mShowingQueue) return;
+        if (mFramebufferBlocked) return;
+
+        final List<String> directoryIds = new ArrayList<>();
+        for (MediaItemView item : mAdapter.getCurrentItems()) {
+            if (item.isBrowsable()) {
+                directoryIds.add(item.getId());
+            }
+        }
+        if (directoryIds.isEmpty()) return;
+
+        final ComponentName providerName = mCurrentlyBrowsedProvider.getUniqueName();
+        RsEventBus.post(new PrefetchDirectoriesEvent(providerName, directoryIds));
     }
 
     private void changeBrowsedProvider(ProviderViewActive provider) {
@@ -311,6 +404,7 @@ public final class NavigatorFragment extends Fragment implements BackButtonHandl
 
             bundle.putString(BREAD_CRUMBS_KEY, json);
             bundle.putString(PROVIDER_NAME_KEY, providerName);
+            bundle.putBoolean(SHOWING_QUEUE_KEY, mShowingQueue);
         }
     }
 
@@ -324,6 +418,7 @@ public final class NavigatorFragment extends Fragment implements BackButtonHandl
             mCrumbs = BreadCrumbs.fromJson(json);
             mLastProviderBrowseSuccessfulEvent = null;
             mRestoredProviderName = bundle.getString(PROVIDER_NAME_KEY);
+            mShowingQueue = bundle.getBoolean(SHOWING_QUEUE_KEY, false);
         }
     }
 
@@ -336,7 +431,9 @@ public final class NavigatorFragment extends Fragment implements BackButtonHandl
 
     private void onGoingBack() {
         Log.d(TAG, "onGoingBack");
-        if (mCrumbs.canGoBack()) {
+        if (mShowingQueue) {
+            ((MainActivity) getActivity()).openMediaPlayer(null);
+        } else if (mCrumbs.canGoBack()) {
             popLevel();
         } else {
             ((MainActivity) getActivity()).openLauncher(null);
@@ -362,8 +459,9 @@ public final class NavigatorFragment extends Fragment implements BackButtonHandl
     private void browseDirectory(String directoryId) {
         Log.d(TAG, "browseDirectory");
         final ComponentName providerName = mCurrentlyBrowsedProvider.getUniqueName();
-        RsEventBus.post(new BrowseDirectoryEvent(providerName, directoryId));
+        /* children may be posted from the browse cache before post returns */
         changeState(State.LOADING);
+        RsEventBus.post(new BrowseDirectoryEvent(providerName, directoryId));
     }
 
     @Override
@@ -407,7 +505,9 @@ public final class NavigatorFragment extends Fragment implements BackButtonHandl
             @Override
             public void onItemClick(AdapterView<?> adapterView, View view, int i, long l) {
                 final MediaItemView mediaItem = (MediaItemView) mAdapter.getItem(i);
-                if (mediaItem.isBrowsable()) {
+                if (mediaItem.isQueueItem()) {
+                    skipToQueueItem(mediaItem.getQueueId());
+                } else if (mediaItem.isBrowsable()) {
                     pushNewLevel(mediaItem.getDisplayLabel(), mediaItem.getId());
                 } else if (mediaItem.isPlayable()) {
                     playMediaItem(mediaItem.getId(), mediaItem.getExtras());
@@ -433,7 +533,9 @@ public final class NavigatorFragment extends Fragment implements BackButtonHandl
         }
 
         changeState(State.LOADING);
-        if (mLastProviderBrowseSuccessfulEvent != null) {
+        if (mShowingQueue && mNowPlayingProvider != null) {
+            showQueue(root, mNowPlayingProvider.getCurrentQueue());
+        } else if (mLastProviderBrowseSuccessfulEvent != null) {
             onEventMainThread(mLastProviderBrowseSuccessfulEvent);
         } else {
             browseCurrentDirectory();
@@ -496,6 +598,13 @@ public final class NavigatorFragment extends Fragment implements BackButtonHandl
         }
     }
 
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        /* queue is shown only when opened from the player, browsing is restored afterwards */
+        mShowingQueue = false;
+    }
+
     @Override
     public void onSaveInstanceState(Bundle outState) {
         Log.d(TAG, "onSaveInstanceState");
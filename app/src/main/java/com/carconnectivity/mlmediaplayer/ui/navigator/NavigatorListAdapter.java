@@ -32,6 +32,7 @@ package com.carconnectivity.mlmediaplayer.ui.navigator;
 import android.app.Fragment;
 import android.content.Context;
 import android.graphics.Bitmap;
+import android.media.session.MediaSession;
 import android.net.Uri;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -43,12 +44,15 @@ import android.widget.TextView;
 
 import com.carconnectivity.mlmediaplayer.R;
 import com.carconnectivity.mlmediaplayer.mediabrowser.MediaItemView;
+import com.carconnectivity.mlmediaplayer.mediabrowser.PlaybackQueue;
+import com.carconnectivity.mlmediaplayer.mediabrowser.events.QueueChangedEvent;
+import com.carconnectivity.mlmediaplayer.ui.player.AlbumArtLoader;
 import com.carconnectivity.mlmediaplayer.utils.pagination.PaginatedAdapter;
 import com.carconnectivity.mlmediaplayer.utils.pagination.PaginatedCollection;
-import com.squareup.picasso.Picasso;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 /**
  * Created by belickim on 22/04/15.
@@ -56,11 +60,15 @@ import java.util.Collection;
 public class NavigatorListAdapter extends BaseAdapter implements PaginatedAdapter {
     public final static int PAGE_SIZE = 4;
     public final static int MAX_UNPAGINATED_ITEMS = 1024;
+    private final static int ITEM_COLOR = 0xffffffff;
+    /* queue items other than the active one are dimmed */
+    private final static int INACTIVE_QUEUE_ITEM_COLOR = 0xb3ffffff;
     private final static String TAG = NavigatorListAdapter.class.getSimpleName();
     final private Fragment mParentFragment;
     private ListView mOwner;
     private PaginatedCollection<MediaItemView> mItems;
     private boolean mUsePagination;
+    private long mActiveQueueItemId = MediaSession.QueueItem.UNKNOWN_ID;
 
     public NavigatorListAdapter(Fragment parent, boolean usePagination) {
         mParentFragment = parent;
@@ -75,9 +83,50 @@ public class NavigatorListAdapter extends BaseAdapter implements PaginatedAdapte
 
     public void setItems(final Collection<MediaItemView> items) {
         mItems = new PaginatedCollection<>(items, mUsePagination ? PAGE_SIZE : MAX_UNPAGINATED_ITEMS, null);
+        mActiveQueueItemId = MediaSession.QueueItem.UNKNOWN_ID;
         notifyDataSetChanged();
     }
 
+    /**
+     * Shows the play queue on the page with its active item, items are wrapped in
+     * views only when their page is shown.
+     */
+    public void setQueue(PlaybackQueue queue) {
+        final int pageSize = getPageSize();
+        mItems = PaginatedCollection.wrap(queue.asMediaItemViews(), pageSize);
+        mActiveQueueItemId = queue.getActiveItemId();
+        final int activePosition = queue.getActivePosition();
+        if (activePosition > 0) {
+            mItems.goToPage(activePosition / pageSize);
+        }
+        notifyDataSetChanged();
+    }
+
+    /**
+     * Replaces shown queue with the changed one, staying on the current page.
+     *
+     * @return true if the count of pages could have changed
+     */
+    public boolean updateQueue(QueueChangedEvent event) {
+        if (mItems == null) return false;
+        final int page = mItems.getCurrentPage();
+        final int pageSize = mItems.getPageSize();
+        final int first = page * pageSize;
+        final int last = first + pageSize - 1;
+
+        mItems = PaginatedCollection.wrap(event.queue.asMediaItemViews(), pageSize);
+        boolean pageChanged = false;
+        if (mItems.goToPage(page) == false && mItems.getPagesCount() > 0) {
+            /* queue shrunk below the current page */
+            pageChanged = mItems.goToPage(mItems.getPagesCount() - 1);
+        }
+        mActiveQueueItemId = event.queue.getActiveItemId();
+        if (pageChanged || event.affects(first, last)) {
+            notifyDataSetChanged();
+        }
+        return event.sizeChanged;
+    }
+
     @Override
     public int getCount() {
         return mItems != null ? mItems.getCurrentItemsCount() : 0;
@@ -85,7 +134,14 @@ public class NavigatorListAdapter extends BaseAdapter implements PaginatedAdapte
 
     @Override
     public Object getItem(int position) {
-        return mItems.getCurrentItems().get(position);
+        return mItems.getCurrentItem(position);
+    }
+
+    /**
+     * @return items shown on the current page
+     */
+    public List<MediaItemView> getCurrentItems() {
+        return mItems != null ? mItems.getCurrentItems() : new ArrayList<MediaItemView>();
     }
 
     @Override
@@ -111,6 +167,8 @@ public class NavigatorListAdapter extends BaseAdapter implements PaginatedAdapte
 
         final MediaItemView view = (MediaItemView) getItem(position);
         viewHolder.appName.setText(view.getDisplayLabel());
+        viewHolder.appName.setTextColor(view.isQueueItem() && view.getQueueId() != mActiveQueueItemId
+                ? INACTIVE_QUEUE_ITEM_COLOR : ITEM_COLOR);
         viewHolder.appIcon.setImageDrawable(null);
 
         Uri displayIconUri = view.getDisplayIconUri();
@@ -122,7 +180,7 @@ public class NavigatorListAdapter extends BaseAdapter implements PaginatedAdapte
         } else if (displayIconUri != null && !displayIconUri.toString().isEmpty()) {
             final Context context = mParentFragment.getActivity().getApplicationContext();
             final String rawUri = displayIconUri.toString();
-            Picasso.with(context).load(rawUri).into(viewHolder.appIcon);
+            AlbumArtLoader.getInstance(context).getPicasso().load(rawUri).into(viewHolder.appIcon);
         }
 
         return convertView;
@@ -172,9 +230,14 @@ public class NavigatorListAdapter extends BaseAdapter implements PaginatedAdapte
         }
         if (mItems != null && mItems.goToPage(pageNumber)) {
             notifyDataSetChanged();
+            ((NavigatorFragment) mParentFragment).prefetchCurrentPage();
         }
     }
 
+    public int getPageSize() {
+        return mUsePagination ? PAGE_SIZE : MAX_UNPAGINATED_ITEMS;
+    }
+
     @Override
     public int getPagesCount() {
         return mItems == null ? 0 : mItems.getPagesCount();
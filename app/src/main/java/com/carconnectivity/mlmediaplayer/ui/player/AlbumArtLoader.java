@@ -0,0 +1,321 @@
+/*
+ * Copyright Car Connectivity Consortium
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * You may decide to give the Car Connectivity Consortium input, suggestions
+ * or feedback of a technical nature which may be implemented on the
+ * Car Connectivity Consortium products (“Feedback”).
+ *
+ * You agrees that any such Feedback is given on non-confidential
+ * basis and Licensee hereby waives any confidentiality restrictions
+ * for such Feedback. In addition, Licensee grants to the Car Connectivity Consortium
+ * and its affiliates a worldwide, non-exclusive, perpetual, irrevocable,
+ * sub-licensable, royalty-free right and license under Licensee’s copyrights to copy,
+ * reproduce, modify, create derivative works and directly or indirectly
+ * distribute, make available and communicate to public the Feedback
+ * in or in connection to any CCC products, software and/or services.
+ */
+
+package com.carconnectivity.mlmediaplayer.ui.player;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.widget.ImageView;
+
+import com.carconnectivity.mlmediaplayer.commonapi.DisplayProfile;
+import com.carconnectivity.mlmediaplayer.commonapi.events.FramebufferBlockingEvent;
+import com.carconnectivity.mlmediaplayer.utils.RsEventBus;
+import com.carconnectivity.mlmediaplayer.utils.event.EventHandler;
+import com.squareup.picasso.Picasso;
+import com.squareup.picasso.RequestCreator;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Loads album art scaled down to the size of the target view, as it is shown on the head
+ * unit display. Metadata bitmaps, which providers may send in full resolution, are center
+ * cropped on a background thread into bitmaps reused after eviction, art URIs are loaded by
+ * Picasso resized to fit the view. Both share one memory cache bounded by bytes.
+ * The Picasso instance is the application wide one returned by Picasso.with, configured
+ * with that cache when the loader is created. Screens loading images get Picasso through
+ * getPicasso, so the loader is created before the first image is loaded.
+ */
+public final class AlbumArtLoader {
+    private static final String TAG = AlbumArtLoader.class.getSimpleName();
+    private static final String SCALED_KEY_PREFIX = "scaled:";
+    private static final int MAX_CACHE_BYTES = 12 * 1024 * 1024;
+    private static final int MAX_REUSABLE_BITMAPS = 2;
+    /* tag of all Picasso requests, paused together while rendering is suspended */
+    private static final Object REQUEST_TAG = new Object();
+
+    private static AlbumArtLoader sInstance;
+
+    private final ArtCache mCache;
+    private final Picasso mPicasso;
+    private final ExecutorService mExecutor;
+    private final Handler mMainHandler;
+    private final Paint mPaint;
+    private final ArrayDeque<Bitmap> mReusable;
+    /* bitmaps being displayed must not be reused, accessed on the main thread */
+    private final WeakHashMap<ImageView, Bitmap> mDisplayed;
+    private final Set<Bitmap> mDisplayedBitmaps;
+    private final WeakHashMap<ImageView, Object> mRequests;
+    /* scaling postponed while suspended, latest per target */
+    private final WeakHashMap<ImageView, Runnable> mDeferred;
+    private boolean mSuspended = false;
+
+    public static synchronized AlbumArtLoader getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new AlbumArtLoader(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private AlbumArtLoader(Context context) {
+        final int maxBytes = (int) Math.min(MAX_CACHE_BYTES, Runtime.getRuntime().maxMemory() / 8);
+        mMainHandler = new Handler(Looper.getMainLooper());
+        mCache = new ArtCache(maxBytes, new ArtCache.EvictionListener() {
+            @Override
+            public void onEntryRemoved(String key, final Bitmap bitmap) {
+                if (key.startsWith(SCALED_KEY_PREFIX) == false) return;
+                /* Picasso evicts from its own threads, displayed bitmaps are tracked on main */
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        recycleForReuse(bitmap);
+                    }
+                });
+            }
+        });
+        mPicasso = installSharedPicasso(context, mCache);
+        mExecutor = Executors.newSingleThreadExecutor();
+        mPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+        mReusable = new ArrayDeque<>();
+        mDisplayed = new WeakHashMap<>();
+        mDisplayedBitmaps = Collections.newSetFromMap(new WeakHashMap<Bitmap, Boolean>());
+        mRequests = new WeakHashMap<>();
+        mDeferred = new WeakHashMap<>();
+        /* posted on the main thread, as the loader is used */
+        RsEventBus.registerSticky(this, FramebufferBlockingEvent.class, new EventHandler<FramebufferBlockingEvent>() {
+            @Override
+            public void onEvent(FramebufferBlockingEvent event) {
+                setSuspended(event.isFramebufferBlocked);
+            }
+        });
+    }
+
+    /**
+     * Configures the Picasso singleton to use the given cache, so the whole application
+     * shares one Picasso with its dispatcher and executor threads.
+     */
+    private static Picasso installSharedPicasso(Context context, ArtCache cache) {
+        try {
+            Picasso.setSingletonInstance(new Picasso.Builder(context).memoryCache(cache).build());
+        } catch (IllegalStateException e) {
+            /* singleton already created, its own cache is used for URIs */
+            Log.w(TAG, "Picasso created before album art loader, art cache used for scaled art only");
+        }
+        return Picasso.with(context);
+    }
+
+    public Picasso getPicasso() {
+        return mPicasso;
+    }
+
+    /**
+     * Suspends loading while nothing drawn is visible, e.g. framebuffer is blocked.
+     * Only the latest request of each target is loaded after resuming.
+     */
+    private void setSuspended(boolean suspended) {
+        if (mSuspended == suspended) return;
+        mSuspended = suspended;
+        if (suspended) {
+            mPicasso.pauseTag(REQUEST_TAG);
+            return;
+        }
+        mPicasso.resumeTag(REQUEST_TAG);
+        final ArrayList<Runnable> deferred = new ArrayList<>(mDeferred.values());
+        mDeferred.clear();
+        for (Runnable load : deferred) {
+            load.run();
+        }
+    }
+
+    /**
+     * Loads art from URI into the target, shows placeholder while loading and on error.
+     */
+    public void load(String uri, ImageView target, int placeholderResId) {
+        mRequests.remove(target);
+        mDeferred.remove(target);
+        setDisplayed(target, null);
+        final RequestCreator request = mPicasso.load(uri)
+                .placeholder(placeholderResId)
+                .error(placeholderResId)
+                .tag(REQUEST_TAG);
+        final DisplayProfile profile = DisplayProfile.getCurrent();
+        if (profile.isScaled() && target.getWidth() != 0 && target.getHeight() != 0) {
+            /* decode only as many pixels as the head unit shows */
+            request.resize(profile.scale(target.getWidth()), profile.scale(target.getHeight()));
+        } else {
+            request.fit();
+        }
+        request.centerCrop().into(target);
+    }
+
+    /**
+     * Shows the bitmap in the target scaled down to the target size.
+     *
+     * @param fingerprint content hash of the source used as the cache key,
+     *                    see ImageUtils.fingerprint
+     */
+    public void load(final Bitmap source, final long fingerprint, final ImageView target) {
+        mPicasso.cancelRequest(target);
+        if (mSuspended) {
+            final Object request = new Object();
+            mRequests.put(target, request);
+            mDeferred.put(target, new Runnable() {
+                @Override
+                public void run() {
+                    if (mRequests.get(target) == request) {
+                        load(source, fingerprint, target);
+                    }
+                }
+            });
+            return;
+        }
+        final DisplayProfile profile = DisplayProfile.getCurrent();
+        final int width = profile.scale(target.getWidth());
+        final int height = profile.scale(target.getHeight());
+        if (width == 0 || height == 0) {
+            /* size is not known before layout */
+            final Object request = new Object();
+            mRequests.put(target, request);
+            target.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (mRequests.get(target) == request && target.getWidth() != 0) {
+                        load(source, fingerprint, target);
+                    }
+                }
+            });
+            return;
+        }
+
+        if (source.getWidth() <= width && source.getHeight() <= height) {
+            mRequests.remove(target);
+            display(target, source);
+            return;
+        }
+
+        final String key = SCALED_KEY_PREFIX + fingerprint + ":" + width + "x" + height;
+        final Bitmap cached = mCache.get(key);
+        if (cached != null) {
+            mRequests.remove(target);
+            display(target, cached);
+            return;
+        }
+
+        final Object request = new Object();
+        mRequests.put(target, request);
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Bitmap scaled = scale(source, width, height);
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        mCache.set(key, scaled);
+                        if (mRequests.get(target) == request) {
+                            mRequests.remove(target);
+                            display(target, scaled);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    private void display(ImageView target, Bitmap bitmap) {
+        setDisplayed(target, bitmap);
+        target.setImageBitmap(bitmap);
+    }
+
+    private void setDisplayed(ImageView target, Bitmap bitmap) {
+        final Bitmap previous = bitmap != null ? mDisplayed.put(target, bitmap) : mDisplayed.remove(target);
+        if (previous != null && mDisplayed.containsValue(previous) == false) {
+            mDisplayedBitmaps.remove(previous);
+        }
+        if (bitmap != null) {
+            mDisplayedBitmaps.add(bitmap);
+        }
+    }
+
+    /**
+     * Called on the main thread after scaled bitmap was removed from the cache.
+     */
+    private void recycleForReuse(Bitmap bitmap) {
+        if (mDisplayedBitmaps.contains(bitmap) || bitmap.isMutable() == false) return;
+
+        synchronized (mReusable) {
+            if (mReusable.size() < MAX_REUSABLE_BITMAPS) {
+                mReusable.add(bitmap);
+            }
+        }
+    }
+
+    private Bitmap obtainBitmap(int width, int height) {
+        synchronized (mReusable) {
+            for (Bitmap bitmap : mReusable) {
+                if (bitmap.getWidth() == width && bitmap.getHeight() == height) {
+                    mReusable.remove(bitmap);
+                    bitmap.eraseColor(Color.TRANSPARENT);
+                    return bitmap;
+                }
+            }
+        }
+        return Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+    }
+
+    /**
+     * Center crops the source into bitmap of the given size, as the album art view does.
+     */
+    private Bitmap scale(Bitmap source, int width, int height) {
+        final float scale = Math.max
+                ((float) width / source.getWidth(), (float) height / source.getHeight());
+        final Matrix matrix = new Matrix();
+        matrix.setScale(scale, scale);
+        matrix.postTranslate
+                ((width - source.getWidth() * scale) / 2, (height - source.getHeight() * scale) / 2);
+
+        final Bitmap scaled = obtainBitmap(width, height);
+        final Canvas canvas = new Canvas(scaled);
+        canvas.drawBitmap(source, matrix, mPaint);
+        Log.d(TAG, "Scaled art from " + source.getWidth() + "x" + source.getHeight()
+                + " to " + width + "x" + height);
+        return scaled;
+    }
+}
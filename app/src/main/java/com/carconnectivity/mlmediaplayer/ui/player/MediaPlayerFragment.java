@@ -36,8 +36,8 @@ import android.graphics.Bitmap;
 import android.graphics.drawable.Drawable;
 import android.media.session.PlaybackState;
 import android.os.Bundle;
-import android.os.SystemClock;
 import android.util.Log;
+import android.view.Choreographer;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -48,6 +48,7 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import com.carconnectivity.mlmediaplayer.R;
+import com.carconnectivity.mlmediaplayer.commonapi.events.FramebufferBlockingEvent;
 import com.carconnectivity.mlmediaplayer.mediabrowser.ProviderPlaybackState;
 import com.carconnectivity.mlmediaplayer.mediabrowser.ProviderViewActive;
 import com.carconnectivity.mlmediaplayer.mediabrowser.events.MediaButtonClickedEvent;
@@ -55,7 +56,6 @@ import com.carconnectivity.mlmediaplayer.mediabrowser.events.MediaExtrasChangedE
 import com.carconnectivity.mlmediaplayer.mediabrowser.events.MediaMetadataChangedEvent;
 import com.carconnectivity.mlmediaplayer.mediabrowser.events.NowPlayingProviderChangedEvent;
 import com.carconnectivity.mlmediaplayer.mediabrowser.events.PlaybackStateChangedEvent;
-import com.carconnectivity.mlmediaplayer.mediabrowser.events.ProgressUpdateEvent;
 import com.carconnectivity.mlmediaplayer.mediabrowser.events.ProviderConnectErrorEvent;
 import com.carconnectivity.mlmediaplayer.mediabrowser.model.MediaButtonData;
 import com.carconnectivity.mlmediaplayer.mediabrowser.model.TrackMetadata;
@@ -64,9 +64,7 @@ import com.carconnectivity.mlmediaplayer.ui.MainActivity;
 import com.carconnectivity.mlmediaplayer.utils.PlaybackUtils;
 import com.carconnectivity.mlmediaplayer.utils.RsEventBus;
 import com.carconnectivity.mlmediaplayer.utils.UiUtilities;
-import com.squareup.picasso.Picasso;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
@@ -79,7 +77,6 @@ public final class MediaPlayerFragment extends Fragment implements BackButtonHan
 
     private static final int WAIT_INDICATOR_ANIMATION_TIME_SPIN = 1000;
     private static final int WAIT_INDICATOR_ANIMATION_TIME_FADE = 200;
-    private static final int MAX_LEVEL_VALUE = 10000;
     private TextView mProviderName;
     private ImageView mAlbumArt;
     private TextView mSongTitle;
@@ -101,10 +98,33 @@ public final class MediaPlayerFragment extends Fragment implements BackButtonHan
     private ImageView mToolbarBottomImage;
     private ColorStateList mToolbarBottomImageColorState;
     private ImageView mProgressBar;
-    private ProgressTimer mProgressTimer;
+    private ProgressRenderer mProgressRenderer;
     private ProviderPlaybackState mCurrentPlaybackState;
+    /* metadata which art is shown in the album art view */
+    private TrackMetadata mDisplayedArtMetadata;
     private long mCurrentTrackDuration;
     private boolean mSecondaryToolbarShown;
+    /* button layout currently bound to the media buttons, compared by reference */
+    private List<MediaButtonData> mBoundMediaButtons;
+    private MediaButtonData mBoundPlaybackButton;
+    private boolean mBoundSecondaryToolbar;
+    /* while framebuffer is blocked updates are only stored and applied after unblocking */
+    private boolean mFramebufferBlocked = false;
+    private TrackMetadata mPendingMetadata;
+    private boolean mPlaybackStatePending = false;
+    /* states received within one frame are applied once, with the latest one */
+    private boolean mPlaybackStateApplyScheduled = false;
+    private final Choreographer.FrameCallback mApplyPlaybackState = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            mPlaybackStateApplyScheduled = false;
+            if (mFramebufferBlocked) {
+                mPlaybackStatePending = true;
+                return;
+            }
+            applyPlaybackState();
+        }
+    };
     private View mRootView;
     private ProviderViewActive mNowPlayingProvider;
     private boolean mCustomTitle = false;
@@ -155,6 +175,11 @@ public final class MediaPlayerFragment extends Fragment implements BackButtonHan
         mToolbarTopImage = (ImageView) mRootView.findViewById(R.id.toolbar_top);
         mToolbarBottomImage = (ImageView) mRootView.findViewById(R.id.toolbar_bottom);
         mProgressBar = (ImageView) mRootView.findViewById(R.id.toolbar_progress);
+        stopProgress();
+        mProgressRenderer = new ProgressRenderer(mProgressBar);
+        mProgressRenderer.setSuspended(mFramebufferBlocked);
+        final FramebufferBlockingEvent blocking = RsEventBus.getStickyEvent(FramebufferBlockingEvent.class);
+        setFramebufferBlocked(blocking != null && blocking.isFramebufferBlocked);
 
         initializeView();
         enablePrimaryToolbar();
@@ -203,6 +228,9 @@ public final class MediaPlayerFragment extends Fragment implements BackButtonHan
 
         mProviderName.setText("");
         mAlbumArt.setImageDrawable(getResources().getDrawable(R.drawable.c4_player_background, null));
+        mDisplayedArtMetadata = null;
+        mBoundMediaButtons = null;
+        mBoundPlaybackButton = null;
         mSongTitle.setText(R.string.press_play_to_start);
         mSongArtist.setText("");
     }
@@ -240,7 +268,48 @@ public final class MediaPlayerFragment extends Fragment implements BackButtonHan
         }
 
         if (mNowPlayingProvider.hasSameIdAs(event.provider)) {
-            updateMetadata(event.metadata);
+            if (mFramebufferBlocked) {
+                mPendingMetadata = event.metadata;
+            } else {
+                updateMetadata(event.metadata);
+            }
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public void onEventMainThread(FramebufferBlockingEvent event) {
+        setFramebufferBlocked(event.isFramebufferBlocked);
+    }
+
+    private void setFramebufferBlocked(boolean blocked) {
+        if (mFramebufferBlocked == blocked) return;
+        Log.d(TAG, "setFramebufferBlocked: blocked=" + blocked);
+        mFramebufferBlocked = blocked;
+        if (mProgressRenderer != null) {
+            mProgressRenderer.setSuspended(blocked);
+        }
+        if (blocked) {
+            if (mWaitIndicatorSpin != null) {
+                mWaitIndicatorSpin.clearAnimation();
+            }
+            return;
+        }
+
+        /* resync everything changed while blocked in one pass */
+        if (mPendingMetadata != null) {
+            final TrackMetadata metadata = mPendingMetadata;
+            mPendingMetadata = null;
+            updateMetadata(metadata);
+        }
+        if (mWaitIndicatorEnabled && mWaitIndicatorSpin != null) {
+            /* restart the spin animation cleared when blocked, a pending state
+             * which is not waiting anymore hides it below */
+            mWaitIndicatorEnabled = false;
+            enableWaitIndicator(true);
+        }
+        if (mPlaybackStatePending) {
+            mPlaybackStatePending = false;
+            applyPlaybackState();
         }
     }
 
@@ -262,10 +331,13 @@ public final class MediaPlayerFragment extends Fragment implements BackButtonHan
             mCustomTitle = false;
             title = metadata.title;
             artist = metadata.artist;
-            if (metadata.artBmp != null) {
-                loadNewBitmap(metadata.artBmp);
-            } else {
-                loadNewBitmap(metadata.artUri);
+            if (metadata.sameArtAs(mDisplayedArtMetadata) == false) {
+                if (metadata.artBmp != null) {
+                    loadNewBitmap(metadata.artBmp, metadata.artFingerprint);
+                } else {
+                    loadNewBitmap(metadata.artUri);
+                }
+                mDisplayedArtMetadata = metadata;
             }
             duration = metadata.duration;
         }
@@ -273,8 +345,8 @@ public final class MediaPlayerFragment extends Fragment implements BackButtonHan
         setTitle(title);
         mSongArtist.setText(UiUtilities.trimLabelText(artist));
         mCurrentTrackDuration = duration;
-        if (mProgressTimer != null) {
-            mProgressTimer.setDuration(mCurrentTrackDuration);
+        if (mProgressRenderer != null) {
+            mProgressRenderer.setDuration(mCurrentTrackDuration);
         }
     }
 
@@ -317,33 +389,42 @@ public final class MediaPlayerFragment extends Fragment implements BackButtonHan
         if (mNowPlayingProvider.hasSameIdAs(event.provider) == false) return;
 
         mCurrentPlaybackState = event.state;
+        if (mFramebufferBlocked) {
+            mPlaybackStatePending = true;
+            return;
+        }
+        if (mPlaybackStateApplyScheduled) return;
+        mPlaybackStateApplyScheduled = true;
+        Choreographer.getInstance().postFrameCallback(mApplyPlaybackState);
+    }
+
+    private void applyPlaybackState() {
+        final ProviderPlaybackState state = mCurrentPlaybackState;
 
         changeTitleBasedOnStateAndMetadataIsEmpty();
 
-        switch (mCurrentPlaybackState.state) {
+        switch (state.state) {
             case PlaybackState.STATE_PLAYING:
-                scheduleProgressTimer
-                        (event.provider, event.state.position
-                                , event.state.lastPositionUpdateTime
+                startProgress
+                        (state.position
+                                , state.lastPositionUpdateTime
+                                , state.playbackSpeed
                         );
                 break;
             case PlaybackState.STATE_SKIPPING_TO_NEXT:
             case PlaybackState.STATE_SKIPPING_TO_PREVIOUS:
-                cancelProgressTimer();
                 setProgress(0);
                 break;
             case PlaybackState.STATE_BUFFERING:
             case PlaybackState.STATE_CONNECTING:
                 enablePrimaryToolbar();
-                cancelProgressTimer();
                 setProgress(0);
                 break;
             default:
-                cancelProgressTimer();
                 setProgress
                         (PlaybackUtils.calculateProgressPercentage
-                                (event.state.position
-                                        , event.state.lastPositionUpdateTime
+                                (state.position
+                                        , state.lastPositionUpdateTime
                                         , mCurrentTrackDuration
                                 )
                         );
@@ -356,22 +437,15 @@ public final class MediaPlayerFragment extends Fragment implements BackButtonHan
         enableWaitIndicator(isWaitIndicatorRequired);
     }
 
-    @SuppressWarnings("unused")
-    public void onEventMainThread(ProgressUpdateEvent event) {
-        if (mNowPlayingProvider == null) {
-            cancelProgressTimer();
-            return;
-        }
-        if (mNowPlayingProvider.hasSameIdAs(event.provider)) {
-            setProgress(event.progress);
-        }
-    }
-
     @SuppressWarnings("unused")
     public void onEventMainThread(MediaButtonClickedEvent event) {
         switch (event.mediaButtonData.type) {
             case QUEUE:
-                ((MainActivity) getActivity()).openNavigator(getView());
+                if (mNowPlayingProvider != null && mNowPlayingProvider.getCurrentQueue().size() > 0) {
+                    ((MainActivity) getActivity()).openQueue(getView());
+                } else {
+                    ((MainActivity) getActivity()).openNavigator(getView());
+                }
                 break;
             case MORE_ACTIONS_ON:
                 enableSecondaryToolbar();
@@ -423,17 +497,14 @@ public final class MediaPlayerFragment extends Fragment implements BackButtonHan
     private void loadNewBitmap(String uri) {
         if (uri == null || uri.equals("") || mAlbumArt == null) return;
         Log.d(TAG, "Updating Bitmap to: " + uri);
-        Picasso.with(getActivity().getApplicationContext())
-                .load(uri)
-                .placeholder(R.drawable.c4_player_background)
-                .error(R.drawable.c4_player_background)
-                .into(mAlbumArt);
+        AlbumArtLoader.getInstance(getActivity())
+                .load(uri, mAlbumArt, R.drawable.c4_player_background);
     }
 
-    private void loadNewBitmap(Bitmap bitmap) {
-        if (bitmap == null) return;
+    private void loadNewBitmap(Bitmap bitmap, long fingerprint) {
+        if (bitmap == null || mAlbumArt == null) return;
         Log.d(TAG, "Updating Bitmap to: " + bitmap);
-        mAlbumArt.setImageBitmap(bitmap);
+        AlbumArtLoader.getInstance(getActivity()).load(bitmap, fingerprint, mAlbumArt);
     }
 
     private void enablePrimaryToolbar() {
@@ -462,8 +533,17 @@ public final class MediaPlayerFragment extends Fragment implements BackButtonHan
             return;
         }
 
-        final List<MediaButtonData> mediaButtonDataList
-                = new ArrayList<>(mCurrentPlaybackState.mediaButtons);
+        if (mCurrentPlaybackState.mediaButtons == mBoundMediaButtons
+                && mCurrentPlaybackState.playbackStateButton == mBoundPlaybackButton
+                && mSecondaryToolbarShown == mBoundSecondaryToolbar) {
+            // Layout unchanged (e.g. position-only update), buttons are already bound
+            return;
+        }
+        mBoundMediaButtons = mCurrentPlaybackState.mediaButtons;
+        mBoundPlaybackButton = mCurrentPlaybackState.playbackStateButton;
+        mBoundSecondaryToolbar = mSecondaryToolbarShown;
+
+        final List<MediaButtonData> mediaButtonDataList = mCurrentPlaybackState.mediaButtons;
         // 1. Check if there are more actions then media buttons
         final int maxVal = 4;
         boolean reserveMoreActionButton = mediaButtonDataList.size() > maxVal;
@@ -530,37 +610,21 @@ public final class MediaPlayerFragment extends Fragment implements BackButtonHan
         mWaitIndicatorBack.setVisibility(visibility);
     }
 
-    private void scheduleProgressTimer(ProviderViewActive currentProvider, long pos, long lastUpdateTime) {
-        cancelProgressTimer();
-        mProgressTimer = new ProgressTimer();
-
-        if (lastUpdateTime == 0) {
-            lastUpdateTime = SystemClock.elapsedRealtime();
+    private void startProgress(long position, long lastUpdateTime, float speed) {
+        if (mProgressRenderer != null) {
+            mProgressRenderer.start(position, lastUpdateTime, speed);
         }
-
-        mProgressTimer.setPosition(pos, lastUpdateTime);
-        mProgressTimer.setDuration(mCurrentTrackDuration);
-        mProgressTimer.start(currentProvider);
     }
 
-    private void cancelProgressTimer() {
-        if (mProgressTimer != null) {
-            mProgressTimer.cancel();
-            mProgressTimer.purge();
-            mProgressTimer = null;
+    private void stopProgress() {
+        if (mProgressRenderer != null) {
+            mProgressRenderer.stop();
         }
     }
 
     private void setProgress(float progress) {
-        Drawable bar = mProgressBar.getDrawable();
-        if (bar == null) return;
-
-        if (progress <= 0) {
-            bar.setLevel(0);
-        } else if (progress >= 1) {
-            bar.setLevel(MAX_LEVEL_VALUE);
-        } else {
-            bar.setLevel((int) (progress * MAX_LEVEL_VALUE));
+        if (mProgressRenderer != null) {
+            mProgressRenderer.showProgress(progress);
         }
     }
 
@@ -627,7 +691,7 @@ public final class MediaPlayerFragment extends Fragment implements BackButtonHan
         Log.d(TAG, "onDestroy");
         super.onDestroy();
         mRootView = null;
-        cancelProgressTimer();
+        stopProgress();
         RsEventBus.unregister(this);
     }
 
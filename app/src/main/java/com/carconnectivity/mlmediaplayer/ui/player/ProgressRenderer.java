@@ -0,0 +1,192 @@
+/*
+ * Copyright Car Connectivity Consortium
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * You may decide to give the Car Connectivity Consortium input, suggestions
+ * or feedback of a technical nature which may be implemented on the
+ * Car Connectivity Consortium products (“Feedback”).
+ *
+ * You agrees that any such Feedback is given on non-confidential
+ * basis and Licensee hereby waives any confidentiality restrictions
+ * for such Feedback. In addition, Licensee grants to the Car Connectivity Consortium
+ * and its affiliates a worldwide, non-exclusive, perpetual, irrevocable,
+ * sub-licensable, royalty-free right and license under Licensee’s copyrights to copy,
+ * reproduce, modify, create derivative works and directly or indirectly
+ * distribute, make available and communicate to public the Feedback
+ * in or in connection to any CCC products, software and/or services.
+ */
+
+package com.carconnectivity.mlmediaplayer.ui.player;
+
+import android.graphics.drawable.Drawable;
+import android.os.SystemClock;
+import android.view.Choreographer;
+import android.view.View;
+import android.widget.ImageView;
+
+import com.carconnectivity.mlmediaplayer.utils.PlaybackUtils;
+
+/**
+ * Renders playback progress on the level of the progress bar drawable. While playing,
+ * position is extrapolated from the last reported position, its update time and playback
+ * speed. The next frame is requested only when the rendered progress moves by at least
+ * one pixel of the bar, which for a track of a few minutes is a few times per second.
+ * Runs on the UI thread only and does not allocate per frame. Frames are not requested
+ * while the bar is detached from the window or rendering is suspended.
+ */
+public class ProgressRenderer implements Choreographer.FrameCallback, View.OnAttachStateChangeListener {
+    public static final int MAX_LEVEL_VALUE = 10000;
+
+    private final ImageView mProgressBar;
+    private final Choreographer mChoreographer;
+
+    private boolean mRunning = false;
+    private boolean mFrameRequested = false;
+    private boolean mSuspended = false;
+    private long mPosition;
+    private long mLastUpdateTime;
+    private float mSpeed;
+    private long mDuration;
+
+    public ProgressRenderer(ImageView progressBar) {
+        if (progressBar == null) {
+            throw new IllegalArgumentException("Progress bar cannot be null.");
+        }
+
+        mProgressBar = progressBar;
+        mChoreographer = Choreographer.getInstance();
+        mProgressBar.addOnAttachStateChangeListener(this);
+    }
+
+    public void setDuration(long duration) {
+        mDuration = duration;
+        if (mRunning == false) return;
+        /* pending frame may be scheduled far ahead for the previous duration */
+        cancelFrame();
+        requestFrame();
+    }
+
+    /**
+     * Starts extrapolating progress from the given position.
+     *
+     * @param lastUpdateTime elapsed realtime of the position update, if 0 now is assumed
+     * @param speed          playback speed, some providers report 0 while playing,
+     *                       which is treated as normal speed
+     */
+    public void start(long position, long lastUpdateTime, float speed) {
+        mPosition = position;
+        mLastUpdateTime = lastUpdateTime != 0 ? lastUpdateTime : SystemClock.elapsedRealtime();
+        mSpeed = speed > 0 ? speed : 1.0f;
+        mRunning = true;
+        cancelFrame();
+        requestFrame();
+    }
+
+    /**
+     * Stops extrapolation, e.g. when playback is paused.
+     */
+    public void stop() {
+        mRunning = false;
+        cancelFrame();
+    }
+
+    /**
+     * Stops extrapolation and shows fixed progress.
+     */
+    public void showProgress(float progress) {
+        stop();
+        setLevel(progress);
+    }
+
+    /**
+     * Suspends rendering while nothing drawn is visible, e.g. framebuffer is blocked.
+     * Extrapolation state is kept, so resuming renders current progress at once.
+     */
+    public void setSuspended(boolean suspended) {
+        if (mSuspended == suspended) return;
+        mSuspended = suspended;
+        if (suspended) {
+            cancelFrame();
+        } else if (mRunning) {
+            requestFrame();
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        mFrameRequested = false;
+        if (mRunning == false) return;
+
+        setLevel(PlaybackUtils.calculateProgressPercentage
+                (mPosition, mLastUpdateTime, mSpeed, mDuration));
+
+        final int width = mProgressBar.getWidth();
+        if (width == 0) {
+            /* not measured yet, resolution is unknown */
+            requestFrame();
+            return;
+        }
+
+        final int steps = Math.min(width, MAX_LEVEL_VALUE);
+        final long delay = PlaybackUtils.calculateNextProgressStepDelay
+                (mPosition, mLastUpdateTime, mSpeed, mDuration, steps);
+        if (delay >= 0) {
+            requestFrame(delay);
+        }
+    }
+
+    @Override
+    public void onViewAttachedToWindow(View view) {
+        if (mRunning) {
+            requestFrame();
+        }
+    }
+
+    @Override
+    public void onViewDetachedFromWindow(View view) {
+        cancelFrame();
+    }
+
+    private void requestFrame() {
+        requestFrame(0);
+    }
+
+    private void requestFrame(long delay) {
+        if (mFrameRequested || mSuspended || mProgressBar.isAttachedToWindow() == false) return;
+        mFrameRequested = true;
+        mChoreographer.postFrameCallbackDelayed(this, delay);
+    }
+
+    private void cancelFrame() {
+        if (mFrameRequested == false) return;
+        mFrameRequested = false;
+        mChoreographer.removeFrameCallback(this);
+    }
+
+    private void setLevel(float progress) {
+        final Drawable bar = mProgressBar.getDrawable();
+        if (bar == null) return;
+
+        final int level;
+        if (progress <= 0) {
+            level = 0;
+        } else if (progress >= 1) {
+            level = MAX_LEVEL_VALUE;
+        } else {
+            level = (int) (progress * MAX_LEVEL_VALUE);
+        }
+        /* setLevel invalidates only when level changes */
+        bar.setLevel(level);
+    }
+}
@@ -33,6 +33,8 @@ import android.content.res.Resources;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
+import android.graphics.Matrix;
+import android.graphics.Rect;
 import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
 
@@ -40,15 +42,46 @@ import android.graphics.drawable.Drawable;
  * Created by belickim on 08/05/15.
  */
 public class ImageUtils {
+    private static final int FINGERPRINT_GRID_SIZE = 8;
 
-    private static Bitmap drawableToBitmap(Drawable drawable) {
+    /**
+     * Calculates cheap content hash of the bitmap from its dimensions and a grid
+     * of sampled pixels. Equal bitmaps have equal fingerprints, different ones
+     * most likely do not.
+     *
+     * @return fingerprint of the bitmap, 0 for null
+     */
+    public static long fingerprint(Bitmap bitmap) {
+        if (bitmap == null) return 0;
+
+        final int width = bitmap.getWidth();
+        final int height = bitmap.getHeight();
+        long hash = 17;
+        hash = 31 * hash + width;
+        hash = 31 * hash + height;
+        for (int row = 0; row < FINGERPRINT_GRID_SIZE; ++row) {
+            final int y = (height - 1) * row / (FINGERPRINT_GRID_SIZE - 1);
+            for (int column = 0; column < FINGERPRINT_GRID_SIZE; ++column) {
+                final int x = (width - 1) * column / (FINGERPRINT_GRID_SIZE - 1);
+                hash = 31 * hash + bitmap.getPixel(x, y);
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Returns bitmap backing the drawable or renders the drawable into a new
+     * bitmap of its intrinsic size.
+     */
+    public static Bitmap drawableToBitmap(Drawable drawable) {
         if (drawable instanceof BitmapDrawable) {
             return ((BitmapDrawable) drawable).getBitmap();
         }
 
+        /* drawables without intrinsic size (e.g. colors) are rendered as a single pixel */
         final Bitmap bitmap
-                = Bitmap.createBitmap(drawable.getIntrinsicWidth()
-                , drawable.getIntrinsicHeight()
+                = Bitmap.createBitmap(Math.max(drawable.getIntrinsicWidth(), 1)
+                , Math.max(drawable.getIntrinsicHeight(), 1)
                 , Bitmap.Config.ARGB_8888
         );
         final Canvas canvas = new Canvas(bitmap);
@@ -62,58 +95,142 @@ public class ImageUtils {
         return Color.alpha(color) <= alphaThreshold;
     }
 
-    private static Bitmap trimTransparentRegions(Bitmap input, int alphaThreshold) {
-        final int height = input.getHeight();
-        final int width = input.getWidth();
-
-        final int[] pixels = new int[height * width];
-        input.getPixels(pixels, 0, width, 0, 0, width, height);
+    /* per thread buffers, so trimming does not allocate once they grow to the largest icon */
+    private static final ThreadLocal<int[]> sRowBuffer = new ThreadLocal<>();
+    private static final ThreadLocal<Bitmap> sScratchBitmap = new ThreadLocal<>();
 
-        int boundTop = 0, boundBottom = 0, boundLeft = 0, boundRight = 0;
-        int i = 0;
+    private static int[] obtainRowBuffer(int width) {
+        int[] buffer = sRowBuffer.get();
+        if (buffer == null || buffer.length < width) {
+            buffer = new int[width];
+            sRowBuffer.set(buffer);
+        }
+        return buffer;
+    }
 
-        topScan:
-        for (i = 0; i < pixels.length; i++) {
-            if (isTransparent(pixels[i], alphaThreshold) == false) {
-                boundTop = i / width;
-                break topScan;
-            }
+    private static boolean readRowIsTransparent(Bitmap input, int[] row, int y, int alphaThreshold) {
+        final int width = input.getWidth();
+        input.getPixels(row, 0, width, 0, y, width, 1);
+        for (int x = 0; x < width; x++) {
+            if (isTransparent(row[x], alphaThreshold) == false) return false;
         }
+        return true;
+    }
 
-        bottomScan:
-        for (i = pixels.length - 1; i >= 0; i--) {
-            if (isTransparent(pixels[i], alphaThreshold) == false) {
-                boundBottom = (pixels.length - i) / width;
-                break bottomScan;
-            }
+    /**
+     * Finds the smallest rectangle containing all pixels with alpha above the threshold.
+     * Rows are read one at a time into a reused buffer: top and bottom bounds are found by
+     * scanning rows inwards until the first visible one, left and right bounds only by
+     * scanning the remaining inner rows up to the bounds found so far.
+     *
+     * @param outBounds rectangle to store result in, may be null
+     * @return bounds of visible pixels, whole bitmap if there are none
+     */
+    public static Rect findVisibleBounds(Bitmap input, int alphaThreshold, Rect outBounds) {
+        final Rect bounds = outBounds != null ? outBounds : new Rect();
+        final int width = input.getWidth();
+        final int height = input.getHeight();
+        final int[] row = obtainRowBuffer(width);
+
+        int top = 0;
+        while (top < height && readRowIsTransparent(input, row, top, alphaThreshold)) {
+            top++;
+        }
+        if (top == height) {
+            bounds.set(0, 0, width, height);
+            return bounds;
+        }
+        int bottom = height - 1;
+        while (bottom > top && readRowIsTransparent(input, row, bottom, alphaThreshold)) {
+            bottom--;
         }
 
-        /* for each x, x <- 0, scan downwards until not transparent pixel is reached */
-        leftScan:
-        for (i = 0; i < width; i++) {
-            for (int j = i; j < pixels.length; j += width) {
-                if (isTransparent(pixels[j], alphaThreshold) == false) {
-                    boundLeft = j % width;
-                    break leftScan;
+        /* first and last visible column seen so far, narrowed down row by row */
+        int left = width;
+        int right = -1;
+        for (int y = top; y <= bottom; y++) {
+            input.getPixels(row, 0, width, 0, y, width, 1);
+            for (int x = 0; x < left; x++) {
+                if (isTransparent(row[x], alphaThreshold) == false) {
+                    left = x;
+                    break;
+                }
+            }
+            for (int x = width - 1; x > right; x--) {
+                if (isTransparent(row[x], alphaThreshold) == false) {
+                    right = x;
+                    break;
                 }
             }
+            if (left == 0 && right == width - 1) break;
         }
 
-        /* for each x, x <- width, scan upwards until not transparent pixel is reached */
-        rightScan:
-        for (i = pixels.length - 1; i >= 0; i--) {
-            for (int j = i; j >= 0; j -= width) {
-                if (isTransparent(pixels[j], alphaThreshold) == false) {
-                    boundRight = width - (j % width);
-                    break rightScan;
-                }
+        bounds.set(left, top, right + 1, bottom + 1);
+        return bounds;
+    }
+
+    /**
+     * Renders drawable scaled down by the factor into a per thread scratch bitmap, which is
+     * reused as long as it is large enough. Contents are valid only until the next call
+     * on the same thread.
+     */
+    private static Bitmap renderToScratchBitmap(Drawable drawable, float scale) {
+        final int width = Math.max(Math.round(drawable.getIntrinsicWidth() * scale), 1);
+        final int height = Math.max(Math.round(drawable.getIntrinsicHeight() * scale), 1);
+        Bitmap scratch = sScratchBitmap.get();
+        if (scratch == null || scratch.getWidth() != width || scratch.getHeight() != height) {
+            if (scratch != null && scratch.getAllocationByteCount() >= width * height * 4) {
+                scratch.reconfigure(width, height, Bitmap.Config.ARGB_8888);
+            } else {
+                scratch = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+                sScratchBitmap.set(scratch);
             }
         }
+        scratch.eraseColor(Color.TRANSPARENT);
+        final Canvas canvas = new Canvas(scratch);
+        drawable.setBounds(0, 0, width, height);
+        drawable.draw(canvas);
+        return scratch;
+    }
 
-        return Bitmap.createBitmap(input, boundLeft, boundTop
-                , width - boundLeft - boundRight
-                , height - boundTop - boundBottom
-        );
+    /**
+     * Renders the drawable into a bitmap with invisible pixels trimmed at the borders
+     *
+     * @param input drawable to be trimmed
+     * @return trimmed bitmap, may share pixels with the drawable
+     */
+    public static Bitmap trimTransparentToBitmap(Drawable input) {
+        return trimTransparentToBitmap(input, 1f);
+    }
+
+    /**
+     * Renders the drawable into a bitmap scaled down by the factor, with invisible pixels
+     * trimmed at the borders. Vector and other non bitmap drawables are rendered directly
+     * in the target size, bitmaps are scaled while the visible part is copied out.
+     *
+     * @param input drawable to be trimmed
+     * @param scale factor applied to the size of the drawable, at most 1
+     * @return trimmed bitmap, may share pixels with the drawable
+     */
+    public static Bitmap trimTransparentToBitmap(Drawable input, float scale) {
+        final boolean isBitmap = input instanceof BitmapDrawable;
+        final Bitmap bitmap = isBitmap
+                ? ((BitmapDrawable) input).getBitmap()
+                : renderToScratchBitmap(input, Math.min(scale, 1f));
+        final Rect bounds = findVisibleBounds(bitmap, 0, null);
+        final boolean scaleBitmap = isBitmap && scale < 1f;
+        if (isBitmap && scaleBitmap == false
+                && bounds.width() == bitmap.getWidth() && bounds.height() == bitmap.getHeight()) {
+            return bitmap;
+        }
+        /* scratch bitmap is reused, so the visible part is always copied out of it */
+        if (scaleBitmap == false) {
+            return Bitmap.createBitmap(bitmap, bounds.left, bounds.top, bounds.width(), bounds.height());
+        }
+        final Matrix matrix = new Matrix();
+        matrix.setScale(scale, scale);
+        return Bitmap.createBitmap(bitmap, bounds.left, bounds.top, bounds.width(), bounds.height()
+                , matrix, true);
     }
 
     /**
@@ -123,9 +240,7 @@ public class ImageUtils {
      * @return trimmed copy of the drawable
      */
     public static Drawable trimTransparent(Drawable input, Resources res) {
-        final Bitmap bitmap = drawableToBitmap(input);
-        final Bitmap trimmed = trimTransparentRegions(bitmap, 0);
-        return new BitmapDrawable(res, trimmed);
+        return new BitmapDrawable(res, trimTransparentToBitmap(input));
     }
 
 }
@@ -42,14 +42,36 @@ import com.carconnectivity.mlmediaplayer.mediabrowser.model.MediaButtonData;
 public class PlaybackUtils {
 
     public static float calculateProgressPercentage(long lastPos, long lastPosUpdateTime, long duration) {
+        return calculateProgressPercentage(lastPos, lastPosUpdateTime, 1.0f, duration);
+    }
+
+    public static float calculateProgressPercentage(long lastPos, long lastPosUpdateTime, float speed, long duration) {
         if (duration > 0) {
             long currentTime = SystemClock.elapsedRealtime();
-            long progress = currentTime - lastPosUpdateTime + lastPos;
-            return (float) progress / duration;
+            float progress = (currentTime - lastPosUpdateTime) * speed + lastPos;
+            return progress / duration;
         }
         return 0;
     }
 
+    /**
+     * Calculates how long it takes until extrapolated progress reaches the next of the given
+     * number of equal steps, e.g. the next pixel of the progress bar.
+     *
+     * @return delay in ms, or -1 if progress will not change
+     */
+    public static long calculateNextProgressStepDelay(long lastPos, long lastPosUpdateTime, float speed, long duration, int steps) {
+        if (duration <= 0 || steps <= 0 || speed <= 0) return -1;
+
+        final long currentTime = SystemClock.elapsedRealtime();
+        final double position = (currentTime - lastPosUpdateTime) * speed + lastPos;
+        if (position >= duration) return -1;
+
+        final double stepLength = (double) duration / steps;
+        final double nextStep = (Math.floor(Math.max(position, 0) / stepLength) + 1) * stepLength;
+        return (long) Math.ceil((nextStep - position) / speed);
+    }
+
     public static Drawable getDefaultIconForMediaButton(Context context, MediaButtonData.Type mediaButtonType) {
         int iconId = 0;
         switch (mediaButtonType) {
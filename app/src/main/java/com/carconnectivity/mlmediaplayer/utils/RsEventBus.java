@@ -29,16 +29,74 @@
 
 package com.carconnectivity.mlmediaplayer.utils;
 
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
-import com.carconnectivity.mlmediaplayer.mediabrowser.events.ProgressUpdateEvent;
+import android.view.Choreographer;
+import com.carconnectivity.mlmediaplayer.utils.event.ConflatedEvent;
+import com.carconnectivity.mlmediaplayer.utils.event.EventHandler;
 import com.carconnectivity.mlmediaplayer.utils.event.RockScoutEvent;
+import com.carconnectivity.mlmediaplayer.utils.event.TypedDispatcher;
 import de.greenrobot.event.EventBus;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Queue;
+
+/**
+ * Subscribers registered with the subscriber object only are found by EventBus reflection,
+ * the ones registering often should register typed handlers instead. Both kinds receive
+ * every posted event, events posted while delivering are queued on the posting thread
+ * and delivered to both kinds after the current one, as EventBus does.
+ * ConflatedEvents are not delivered when posted: only the latest one of each type and key
+ * is kept and delivered on the main thread with the next frame, so frequent producers
+ * cannot flood the main looper.
+ */
 public class RsEventBus {
 
     private static final String TAG = RsEventBus.class.getSimpleName();
 
-    private static final EventBus mBus = new EventBus();
+    /* events consumed only by typed handlers have no EventBus subscribers, with the defaults
+     * EventBus would log a warning and post NoSubscriberEvent, which nothing subscribes to,
+     * for every one of them
+     */
+    private static final EventBus mBus = EventBus.builder()
+            .logNoSubscriberMessages(false)
+            .sendNoSubscriberEvent(false)
+            .build();
+    private static final TypedDispatcher mDispatcher = new TypedDispatcher();
+    private static final ThreadLocal<PostingState> mPostingState = new ThreadLocal<PostingState>() {
+        @Override
+        protected PostingState initialValue() {
+            return new PostingState();
+        }
+    };
+
+    private static final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private static final LinkedHashMap<ConflationKey, ConflatedEvent> mConflated = new LinkedHashMap<>();
+    private static boolean mConflatedDrainScheduled = false;
+    private static final Choreographer.FrameCallback mDrainConflated = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            final List<ConflatedEvent> events;
+            synchronized (mConflated) {
+                events = new ArrayList<>(mConflated.values());
+                mConflated.clear();
+                mConflatedDrainScheduled = false;
+            }
+            for (ConflatedEvent event : events) {
+                enqueue(event, false);
+            }
+        }
+    };
+    private static final Runnable mScheduleDrain = new Runnable() {
+        @Override
+        public void run() {
+            Choreographer.getInstance().postFrameCallback(mDrainConflated);
+        }
+    };
 
     public static void register(Object subscriber) {
         Log.d(TAG, "Register subscriber: " + subscriber.getClass().getSimpleName());
@@ -54,21 +112,94 @@ public class RsEventBus {
         }
     }
 
+    /**
+     * Registers handler called on the posting thread, as onEvent methods are.
+     */
+    public static <T extends RockScoutEvent> void register
+            (Object owner, Class<T> eventType, EventHandler<T> handler) {
+        mDispatcher.subscribe(owner, eventType, handler, false);
+    }
+
+    /**
+     * Registers handler called on the main thread, as onEventMainThread methods are.
+     */
+    public static <T extends RockScoutEvent> void registerMainThread
+            (Object owner, Class<T> eventType, EventHandler<T> handler) {
+        mDispatcher.subscribe(owner, eventType, handler, true);
+    }
+
+    /**
+     * Registers handler called on the posting thread and delivers the sticky event
+     * of the type to it right away, if there is one.
+     */
+    public static <T extends RockScoutEvent> void registerSticky
+            (Object owner, Class<T> eventType, EventHandler<T> handler) {
+        if (mDispatcher.subscribe(owner, eventType, handler, false)) {
+            final T sticky = mBus.getStickyEvent(eventType);
+            if (sticky != null) {
+                mDispatcher.deliver(owner, sticky);
+            }
+        }
+    }
+
     public static void post(RockScoutEvent event) {
-        if (event instanceof ProgressUpdateEvent == false) {
+        if (event instanceof ConflatedEvent) {
+            /* posted up to frame rate, not logged */
+            conflate((ConflatedEvent) event);
+        } else {
             Log.d(TAG, "Post event: " + event.getClass().getSimpleName() + " - " + event);
+            enqueue(event, false);
+        }
+    }
+
+    private static void conflate(ConflatedEvent event) {
+        final ConflationKey key = new ConflationKey(event.getClass(), event.getConflationKey());
+        synchronized (mConflated) {
+            /* removed first, so the latest events are delivered in the order they were posted */
+            mConflated.remove(key);
+            mConflated.put(key, event);
+            if (mConflatedDrainScheduled) return;
+            mConflatedDrainScheduled = true;
+        }
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            mScheduleDrain.run();
+        } else {
+            mMainHandler.post(mScheduleDrain);
         }
-        mBus.post(event);
     }
 
     public static void postSticky(RockScoutEvent event) {
         Log.d(TAG, "Post sticky event: " + event.getClass().getSimpleName() + " - " + event);
-        mBus.postSticky(event);
+        enqueue(event, true);
+    }
+
+    private static void enqueue(RockScoutEvent event, boolean sticky) {
+        final PostingState state = mPostingState.get();
+        state.queue.add(new PendingEvent(event, sticky));
+        if (state.isPosting) return;
+
+        state.isPosting = true;
+        try {
+            PendingEvent pending;
+            while ((pending = state.queue.poll()) != null) {
+                if (pending.sticky) {
+                    mBus.postSticky(pending.event);
+                } else {
+                    mBus.post(pending.event);
+                }
+                mDispatcher.dispatch(pending.event);
+            }
+        } finally {
+            state.isPosting = false;
+        }
     }
 
     public static void unregister(Object subscriber) {
         Log.d(TAG, "Unregister subscriber: " + subscriber.getClass().getSimpleName());
-        mBus.unregister(subscriber);
+        if (mBus.isRegistered(subscriber)) {
+            mBus.unregister(subscriber);
+        }
+        mDispatcher.unsubscribe(subscriber);
     }
 
     public static void removeAllStickyEvents() {
@@ -80,4 +211,43 @@ public class RsEventBus {
         Log.d(TAG, "Get sticky event: " + event.getClass().getSimpleName() + " - " + event);
         return mBus.getStickyEvent(event);
     }
+
+    private static final class PostingState {
+        final Queue<PendingEvent> queue = new ArrayDeque<>();
+        boolean isPosting;
+    }
+
+    private static final class ConflationKey {
+        final Class<?> type;
+        final Object key;
+
+        ConflationKey(Class<?> type, Object key) {
+            this.type = type;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            final ConflationKey that = (ConflationKey) o;
+            return type.equals(that.type) && (key != null ? key.equals(that.key) : that.key == null);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * type.hashCode() + (key != null ? key.hashCode() : 0);
+        }
+    }
+
+    private static final class PendingEvent {
+        final RockScoutEvent event;
+        final boolean sticky;
+
+        PendingEvent(RockScoutEvent event, boolean sticky) {
+            this.event = event;
+            this.sticky = sticky;
+        }
+    }
 }
@@ -0,0 +1,134 @@
+/*
+ * Copyright Car Connectivity Consortium
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * You may decide to give the Car Connectivity Consortium input, suggestions
+ * or feedback of a technical nature which may be implemented on the
+ * Car Connectivity Consortium products (“Feedback”).
+ *
+ * You agrees that any such Feedback is given on non-confidential
+ * basis and Licensee hereby waives any confidentiality restrictions
+ * for such Feedback. In addition, Licensee grants to the Car Connectivity Consortium
+ * and its affiliates a worldwide, non-exclusive, perpetual, irrevocable,
+ * sub-licensable, royalty-free right and license under Licensee’s copyrights to copy,
+ * reproduce, modify, create derivative works and directly or indirectly
+ * distribute, make available and communicate to public the Feedback
+ * in or in connection to any CCC products, software and/or services.
+ */
+
+package com.carconnectivity.mlmediaplayer.utils.event;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Dispatches events to explicitly registered handlers using tables of subscriptions
+ * kept per event type, so registering does not scan subscriber classes and delivery
+ * does not go through reflection. Events are matched by their exact class.
+ */
+public final class TypedDispatcher {
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final Map<Class<?>, List<Subscription>> mTables = new ConcurrentHashMap<>();
+
+    /**
+     * Adds the handler, does nothing if the owner already handles given event type.
+     *
+     * @param mainThread if true handler is called on the main thread, as onEventMainThread
+     *                   methods are, otherwise on the posting thread
+     * @return false if the owner was already subscribed to the event type
+     */
+    public synchronized <T extends RockScoutEvent> boolean subscribe
+            (Object owner, Class<T> eventType, EventHandler<T> handler, boolean mainThread) {
+        List<Subscription> table = mTables.get(eventType);
+        if (table == null) {
+            table = new CopyOnWriteArrayList<>();
+            mTables.put(eventType, table);
+        }
+        for (Subscription subscription : table) {
+            if (subscription.owner == owner) return false;
+        }
+
+        @SuppressWarnings("unchecked")
+        final EventHandler<RockScoutEvent> rawHandler = (EventHandler<RockScoutEvent>) handler;
+        table.add(new Subscription(owner, rawHandler, mainThread));
+        return true;
+    }
+
+    public synchronized void unsubscribe(Object owner) {
+        for (List<Subscription> table : mTables.values()) {
+            for (Subscription subscription : table) {
+                if (subscription.owner == owner) {
+                    subscription.active = false;
+                    table.remove(subscription);
+                }
+            }
+        }
+    }
+
+    public void dispatch(RockScoutEvent event) {
+        final List<Subscription> table = mTables.get(event.getClass());
+        if (table == null) return;
+
+        for (Subscription subscription : table) {
+            deliver(subscription, event);
+        }
+    }
+
+    /**
+     * Delivers event to a single handler of the owner, used for sticky events on registration.
+     */
+    public void deliver(Object owner, RockScoutEvent event) {
+        final List<Subscription> table = mTables.get(event.getClass());
+        if (table == null) return;
+
+        for (Subscription subscription : table) {
+            if (subscription.owner == owner) {
+                deliver(subscription, event);
+            }
+        }
+    }
+
+    private void deliver(final Subscription subscription, final RockScoutEvent event) {
+        if (subscription.mainThread && Looper.myLooper() != Looper.getMainLooper()) {
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (subscription.active) {
+                        subscription.handler.onEvent(event);
+                    }
+                }
+            });
+        } else {
+            subscription.handler.onEvent(event);
+        }
+    }
+
+    private static final class Subscription {
+        final Object owner;
+        final EventHandler<RockScoutEvent> handler;
+        final boolean mainThread;
+        volatile boolean active = true;
+
+        Subscription(Object owner, EventHandler<RockScoutEvent> handler, boolean mainThread) {
+            this.owner = owner;
+            this.handler = handler;
+            this.mainThread = mainThread;
+        }
+    }
+}
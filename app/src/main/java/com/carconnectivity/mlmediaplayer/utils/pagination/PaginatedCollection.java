@@ -43,7 +43,7 @@ import java.util.List;
 public class PaginatedCollection<T> {
     private final Comparator<T> mOrder;
     private PaginationModel mModel;
-    private ArrayList<T> mItems;
+    private List<T> mItems;
 
     /**
      * Creates new instance obviously.
@@ -67,6 +67,26 @@ public class PaginatedCollection<T> {
         sortItems();
     }
 
+    private PaginatedCollection(List<T> items, int pageSize) {
+        if (pageSize < 1)
+            throw new IllegalArgumentException("Page size must be positive integer.");
+
+        mItems = items;
+        mModel = new PaginationModel(mItems.size(), pageSize);
+        mOrder = null;
+    }
+
+    /**
+     * Creates read only collection backed by the given list, without copying, ordering
+     * or removing duplicates, only items on the current page are ever read.
+     *
+     * @param items    unique items, must not change while wrapped.
+     * @param pageSize maximum count of items on a single page.
+     */
+    public static <T> PaginatedCollection<T> wrap(List<T> items, int pageSize) {
+        return new PaginatedCollection<>(items, pageSize);
+    }
+
     private void sortItems() {
         if (mItems == null || mOrder == null) return;
         Collections.sort(mItems, mOrder);
@@ -85,6 +105,18 @@ public class PaginatedCollection<T> {
         return items;
     }
 
+    /**
+     * Reads a single item of the current page, without copying the rest of the page.
+     *
+     * @param position position of the item on the current page
+     */
+    public T getCurrentItem(int position) {
+        if (position < 0 || position >= getCurrentItemsCount())
+            throw new IndexOutOfBoundsException("Invalid position on page: " + position);
+
+        return mItems.get(mModel.getCurrentPage() * mModel.getPageSize() + position);
+    }
+
     public boolean goToPage(int i) {
         return mModel.setCurrentPage(i);
     }
@@ -109,6 +141,10 @@ public class PaginatedCollection<T> {
         return mModel.getCurrentPage();
     }
 
+    public int getPageSize() {
+        return mModel.getPageSize();
+    }
+
     public boolean contains(T item) {
         for (T owned : mItems) {
             /* Your WTF is sponsored by Java's Object.equals, have a nice day. */